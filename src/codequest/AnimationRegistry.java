@@ -0,0 +1,195 @@
+package codequest;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javafx.animation.Animation;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * AnimationRegistry - Owns every animation in the game and ties it to its scene being seen
+ * An animation is played through the registry together with the node it animates. It
+ * only runs while that node is in a scene on a showing window that is not minimized,
+ * and is paused otherwise, picking up where it left off when the scene comes back. Once
+ * nothing is running, JavaFX has no reason to schedule pulses and the FX thread goes
+ * idle, which matters on battery.
+ *
+ * Only used on the FX thread. Scenes may be built on other threads, so play() and stop()
+ * check that they are on it rather than let the map be changed from two threads.
+ */
+public final class AnimationRegistry {
+
+    private static final Map<Animation, Binding> BINDINGS = new IdentityHashMap<>();
+
+    private AnimationRegistry() {
+    }
+
+    /**
+     * Play an animation whenever its node can be seen, until it finishes or is stopped
+     */
+    public static void play(Animation animation, Node owner) {
+        checkFxThread();
+        Binding binding = BINDINGS.get(animation);
+        if (binding != null && binding.owner != owner) {
+            binding.release();
+            binding = null;
+        }
+        if (binding == null) {
+            binding = new Binding(animation, owner);
+            BINDINGS.put(animation, binding);
+        }
+        binding.update();
+    }
+
+    /**
+     * Stop an animation and forget it
+     */
+    public static void stop(Animation animation) {
+        checkFxThread();
+        Binding binding = BINDINGS.get(animation);
+        if (binding != null) {
+            binding.release();
+        }
+        animation.stop();
+    }
+
+    /**
+     * Get how many animations are running right now, not counting paused ones
+     */
+    public static int getRunningCount() {
+        int running = 0;
+        for (Animation animation : BINDINGS.keySet()) {
+            if (animation.getStatus() == Animation.Status.RUNNING) {
+                running++;
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Get how many animations are waiting for their scene to be seen again
+     */
+    public static int getPausedCount() {
+        return BINDINGS.size() - getRunningCount();
+    }
+
+    private static void checkFxThread() {
+        if (!Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("Animations are only played and stopped on the FX thread, not on "
+                + Thread.currentThread().getName());
+        }
+    }
+
+    private static boolean isSeen(Node node) {
+        Scene scene = node.getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        if (window == null || !window.isShowing()) {
+            return false;
+        }
+        return !(window instanceof Stage) || !((Stage) window).isIconified();
+    }
+
+    /**
+     * One animation and the listeners that follow its node onto and off the stage
+     */
+    private static final class Binding implements InvalidationListener {
+        final Animation animation;
+        final Node owner;
+        private Scene scene;
+        private Window window;
+        private final InvalidationListener statusListener;
+        private boolean pausedHere = false;
+
+        Binding(Animation animation, Node owner) {
+            this.animation = animation;
+            this.owner = owner;
+            statusListener = observable -> {
+                // Finished or stopped from outside; a pause of our own keeps the binding
+                if (animation.getStatus() == Animation.Status.STOPPED) {
+                    release();
+                }
+            };
+            owner.sceneProperty().addListener(this);
+            animation.statusProperty().addListener(statusListener);
+            follow();
+        }
+
+        @Override
+        public void invalidated(Observable observable) {
+            follow();
+            update();
+        }
+
+        /**
+         * Listen to the node's current scene and window, and stop listening to old ones
+         */
+        private void follow() {
+            Scene newScene = owner.getScene();
+            if (newScene != scene) {
+                if (scene != null) {
+                    scene.windowProperty().removeListener(this);
+                }
+                scene = newScene;
+                if (scene != null) {
+                    scene.windowProperty().addListener(this);
+                }
+            }
+
+            Window newWindow = scene != null ? scene.getWindow() : null;
+            if (newWindow != window) {
+                if (window != null) {
+                    window.showingProperty().removeListener(this);
+                    if (window instanceof Stage) {
+                        ((Stage) window).iconifiedProperty().removeListener(this);
+                    }
+                }
+                window = newWindow;
+                if (window != null) {
+                    window.showingProperty().addListener(this);
+                    if (window instanceof Stage) {
+                        ((Stage) window).iconifiedProperty().addListener(this);
+                    }
+                }
+            }
+        }
+
+        void update() {
+            if (isSeen(owner)) {
+                if (animation.getStatus() != Animation.Status.RUNNING) {
+                    pausedHere = false;
+                    animation.play();
+                }
+            } else if (!pausedHere) {
+                pausedHere = true;
+                // A paused animation keeps its place; one never started simply waits
+                if (animation.getStatus() == Animation.Status.RUNNING) {
+                    animation.pause();
+                }
+            }
+        }
+
+        void release() {
+            if (BINDINGS.get(animation) != this) {
+                return;
+            }
+            BINDINGS.remove(animation);
+            animation.statusProperty().removeListener(statusListener);
+            owner.sceneProperty().removeListener(this);
+            if (scene != null) {
+                scene.windowProperty().removeListener(this);
+            }
+            if (window != null) {
+                window.showingProperty().removeListener(this);
+                if (window instanceof Stage) {
+                    ((Stage) window).iconifiedProperty().removeListener(this);
+                }
+            }
+        }
+    }
+}
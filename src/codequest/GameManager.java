@@ -42,11 +42,19 @@ public class GameManager {
     private static final int WINDOW_WIDTH = 1024;
     private static final int WINDOW_HEIGHT = 768;
 
+    // Every scene refers to the stylesheet by this one URL, so JavaFX parses it only once
+    public static final String STYLESHEET = GameManager.class.getResource("/codequest/assets/styles.css")
+        .toExternalForm();
+
+    // The scene of the level the player will go to next, built while they play this one
+    private final ScenePrefetcher prefetcher = new ScenePrefetcher();
+
     public GameManager(Stage primaryStage) {
         this.primaryStage = primaryStage;
         initializeLevels();
         createStartScene();
         createCompletionScene();
+        prefetcher.prefetch(levels[0]);
     }
 
     private void initializeLevels() {
@@ -156,7 +164,7 @@ public class GameManager {
         startScene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
 
         // Add style sheet
-        startScene.getStylesheets().add(getClass().getResource("/codequest/assets/styles.css").toExternalForm());
+        startScene.getStylesheets().add(STYLESHEET);
     }
 
     private void createCompletionScene() {
@@ -180,7 +188,8 @@ public class GameManager {
         fadeTransition.setToValue(1.0);
         fadeTransition.setCycleCount(Animation.INDEFINITE);
         fadeTransition.setAutoReverse(true);
-        fadeTransition.play();
+        // Only pulses while the completion scene is on the stage
+        AnimationRegistry.play(fadeTransition, congratsText);
 
         // Completion message
         Text completionText = new Text(
@@ -239,7 +248,7 @@ public class GameManager {
         root.setCenter(centerBox);
 
         completionScene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
-        completionScene.getStylesheets().add(getClass().getResource("/codequest/assets/styles.css").toExternalForm());
+        completionScene.getStylesheets().add(STYLESHEET);
     }
 
     public Scene getStartScene() {
@@ -253,7 +262,7 @@ public class GameManager {
 
     public void loadCurrentLevel() {
         if (currentLevel < levels.length) {
-            Scene levelScene = levels[currentLevel].createLevelScene();
+            Scene levelScene = prefetcher.take(levels[currentLevel]);
 
             // Add transition effect
             FadeTransition fadeIn = new FadeTransition(Duration.millis(800), levelScene.getRoot());
@@ -261,7 +270,12 @@ public class GameManager {
             fadeIn.setToValue(1.0);
 
             primaryStage.setScene(levelScene);
-            fadeIn.play();
+            AnimationRegistry.play(fadeIn, levelScene.getRoot());
+            levels[currentLevel].sceneShown();
+
+            if (currentLevel + 1 < levels.length) {
+                prefetcher.prefetch(levels[currentLevel + 1]);
+            }
         } else {
             // Game completed
             showGameCompletedScene();
@@ -280,6 +294,9 @@ public class GameManager {
         fadeIn.setToValue(1.0);
 
         primaryStage.setScene(completionScene);
-        fadeIn.play();
+        AnimationRegistry.play(fadeIn, completionScene.getRoot());
+
+        // Ready for Play Again
+        prefetcher.prefetch(levels[0]);
     }
 }
\ No newline at end of file
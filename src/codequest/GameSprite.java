@@ -1,5 +1,6 @@
 package codequest;
 
+import codequest.engine.SpriteModel;
 import javafx.animation.TranslateTransition;
 import javafx.scene.Group;
 import javafx.scene.image.Image;
@@ -18,9 +19,9 @@ public class GameSprite {
 
     private ImageView spriteView;
     private Group fallbackSprite;
+    private final SpriteModel model;
     private double xPos;
     private double yPos;
-    private int speed = 5;
     private Pane spriteLayer;
 
     // Animation images
@@ -34,6 +35,7 @@ public class GameSprite {
     private int currentFrame = 0;
     private final int FRAME_DELAY = 5;
     private int frameCounter = 0;
+    private TranslateTransition moveTransition;
 
     // Debug flag - set to true to show position markers
     private final boolean DEBUG_POSITIONING = false;
@@ -42,7 +44,15 @@ public class GameSprite {
      * Creates a new sprite on the given sprite layer
      */
     public GameSprite(Pane spriteLayer) {
+        this(spriteLayer, new SpriteModel());
+    }
+
+    /**
+     * Creates a sprite that draws the given model, such as the sprite of a level's World
+     */
+    public GameSprite(Pane spriteLayer, SpriteModel model) {
         this.spriteLayer = spriteLayer;
+        this.model = model;
 
         // Initialize sprite view
         spriteView = new ImageView();
@@ -86,15 +96,15 @@ public class GameSprite {
             spriteLayer.getChildren().add(fallbackSprite);
 
             // Set properties for positioning
-            xPos = 50;
-            yPos = 200;
+            xPos = model.getXPos();
+            yPos = model.getYPos();
             updatePosition();
             return;
         }
 
         // Initial position - consistent starting point
-        xPos = 50;
-        yPos = 200;
+        xPos = model.getXPos();
+        yPos = model.getYPos();
         updatePosition();
 
         // Add to the sprite layer
@@ -141,17 +151,12 @@ public class GameSprite {
      * Move the sprite left
      */
     public void moveLeft() {
-        if (xPos > 0) {
-            xPos -= speed * 10; // Increased movement distance
+        if (model.moveLeft()) {
+            xPos = model.getXPos();
 
             // Set sprite state to running left
             currentState = "runLeft";
 
-            // Make sure we don't go off screen
-            if (xPos < 0) {
-                xPos = 0;
-            }
-
             // Move the sprite to new position
             moveToPosition(xPos, yPos);
         }
@@ -162,22 +167,52 @@ public class GameSprite {
      */
     public void moveRight() {
         double maxX = spriteLayer.getWidth() - (spriteView != null ? spriteView.getFitWidth() : 40);
-        if (xPos < maxX) {
-            xPos += speed * 10; // Increased movement distance
+        if (model.moveRight(maxX)) {
+            xPos = model.getXPos();
 
             // Set sprite state to running right
             currentState = "runRight";
 
-            // Make sure we don't go off screen
-            if (xPos > maxX) {
-                xPos = maxX;
-            }
-
             // Move the sprite to new position
             moveToPosition(xPos, yPos);
         }
     }
 
+    /**
+     * Animate to the model's position after something else (such as the Interpreter) moved it
+     */
+    public void syncToModel() {
+        syncTo(model.getXPos());
+    }
+
+    /**
+     * Animate to a position the model had, such as one carried by a game event
+     */
+    public void syncTo(double newX) {
+        if (newX == xPos) {
+            return;
+        }
+
+        // Run in the direction of travel
+        currentState = newX < xPos ? "runLeft" : "runRight";
+        xPos = newX;
+        moveToPosition(xPos, yPos);
+    }
+
+    /**
+     * Put the sprite at a position at once, cutting short any move still animating
+     */
+    public void placeAt(double newX) {
+        if (moveTransition != null) {
+            AnimationRegistry.stop(moveTransition);
+            moveTransition = null;
+        }
+        xPos = newX;
+        currentState = "idle";
+        updatePosition();
+        updateAnimation();
+    }
+
     /**
      * Jump action with proper animation reset
      */
@@ -211,7 +246,7 @@ public class GameSprite {
                 if (jumpImages.length > 1) {
                     spriteView.setImage(jumpImages[1]);
                 }
-                fallDown.play();
+                AnimationRegistry.play(fallDown, spriteView);
             });
 
             fallDown.setOnFinished(e -> {
@@ -225,7 +260,7 @@ public class GameSprite {
                 yPos = startingY;
             });
 
-            jumpUp.play();
+            AnimationRegistry.play(jumpUp, spriteView);
         }
         else if (fallbackSprite != null) {
             // Similar code for fallback sprite
@@ -237,7 +272,7 @@ public class GameSprite {
             TranslateTransition fallDown = new TranslateTransition(Duration.millis(300), fallbackSprite);
             fallDown.setToY(0);
 
-            jumpUp.setOnFinished(e -> fallDown.play());
+            jumpUp.setOnFinished(e -> AnimationRegistry.play(fallDown, fallbackSprite));
 
             fallDown.setOnFinished(e -> {
                 // Reset completely
@@ -246,7 +281,7 @@ public class GameSprite {
                 yPos = startingY;
             });
 
-            jumpUp.play();
+            AnimationRegistry.play(jumpUp, fallbackSprite);
         }
     }
 
@@ -272,14 +307,15 @@ public class GameSprite {
         TranslateTransition shoot = new TranslateTransition(Duration.millis(500), projectile);
         shoot.setByX(300);
         shoot.setOnFinished(e -> spriteLayer.getChildren().remove(projectile));
-        shoot.play();
+        AnimationRegistry.play(shoot, projectile);
     }
 
     /**
      * Move back action
      */
     public void moveBack() {
-        xPos = 50;
+        model.moveBack();
+        xPos = model.getXPos();
         moveToPosition(xPos, yPos);
     }
 
@@ -287,16 +323,14 @@ public class GameSprite {
      * Set the sprite's speed
      */
     public void setSpeed(int newSpeed) {
-        if (newSpeed > 0 && newSpeed <= 20) {
-            this.speed = newSpeed;
-        }
+        model.setSpeed(newSpeed);
     }
 
     /**
      * Get the sprite's speed
      */
     public int getSpeed() {
-        return speed;
+        return model.getSpeed();
     }
 
     /**
@@ -324,6 +358,7 @@ public class GameSprite {
 
             // Animate movement
             TranslateTransition move = new TranslateTransition(Duration.millis(150), spriteView);
+            moveTransition = move;
             move.setToX(newX - spriteView.getLayoutX());
             move.setToY(newY - spriteView.getLayoutY());
 
@@ -333,6 +368,7 @@ public class GameSprite {
                 spriteView.setLayoutY(newY);
                 spriteView.setTranslateX(0);
                 spriteView.setTranslateY(0);
+                moveTransition = null;
 
                 // Return to idle state
                 currentState = "idle";
@@ -344,7 +380,7 @@ public class GameSprite {
                 }
             });
 
-            move.play();
+            AnimationRegistry.play(move, spriteView);
 
             // Update animation frame
             updateAnimation();
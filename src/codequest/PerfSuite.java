@@ -0,0 +1,287 @@
+package codequest;
+
+import codequest.engine.GeneratedLevel;
+import codequest.engine.Interpreter;
+import codequest.engine.World;
+import codequest.grading.GradingClient;
+import codequest.grading.HeadlessGrader;
+import codequest.levels.BaseLevel;
+import codequest.levels.CommandsLevel;
+import codequest.levels.ConditionalsLevel;
+import codequest.levels.FreeRoamLevel;
+import codequest.levels.LoopsLevel;
+import codequest.levels.VariablesLevel;
+import codequest.lang.Parser;
+import codequest.lang.Program;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javafx.application.Platform;
+import javafx.scene.layout.Pane;
+
+/**
+ * PerfSuite - Times the hot paths of the game on fixed inputs and compares them with a baseline
+ * Each benchmark times one operation, such as running a generated level's solution or
+ * resetting a level, over several rounds after a warmup, and takes the median round so one
+ * slow round does not fail the suite. The result in microseconds per operation is compared
+ * with the checked-in baseline file, and a benchmark fails if it got slower by more than the
+ * tolerance. A benchmark without a baseline fails too, so one that was never recorded
+ * cannot pass unguarded; record it on the lab machine first.
+ *
+ * Usage: PerfSuite [--baseline=file] [--tolerance=percent] [--record] [--headless] [benchmark...]
+ * With benchmark names only those run. --record writes the results into the baseline file
+ * instead of failing, for a new benchmark, after a change that is meant to be slower, or
+ * on a new lab machine.
+ * The scene, reset and sprite benchmarks need the JavaFX toolkit; --headless starts it on
+ * Monocle as RenderStress does.
+ */
+public final class PerfSuite {
+
+    public static final Path DEFAULT_BASELINE = Paths.get("perf-baseline.properties");
+    private static final double DEFAULT_TOLERANCE = 20;
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 7;
+
+    // Results are summed here so the JIT cannot drop work whose result is unused
+    private static volatile long sink;
+
+    private PerfSuite() {
+    }
+
+    /**
+     * One timed operation; setUp runs before timing and returns the operation
+     */
+    private static final class Benchmark {
+        final String name;
+        final int opsPerRound;
+        final boolean needsToolkit;
+        final Supplier<LongSupplier> setUp;
+
+        Benchmark(String name, int opsPerRound, boolean needsToolkit, Supplier<LongSupplier> setUp) {
+            this.name = name;
+            this.opsPerRound = opsPerRound;
+            this.needsToolkit = needsToolkit;
+            this.setUp = setUp;
+        }
+    }
+
+    private static final List<Benchmark> BENCHMARKS = Arrays.asList(
+        // Runs the solution of a generated level with 220 entities
+        new Benchmark("interpreter", 200, false, () -> interpret(GeneratedLevel.generate(1, 100, 100, 20, 4924))),
+        // The same at 7000 entities, where finding the nearest target dominates
+        new Benchmark("interpreter-large", 20, false,
+            () -> interpret(GeneratedLevel.generate(2, 3000, 3000, 1000, 120924))),
+        // Grades the sample solution of every level, as the grading daemon would
+        new Benchmark("grading", 2000, false, PerfSuite::grade),
+        new Benchmark("scene-build", 10, true, PerfSuite::buildScenes),
+        new Benchmark("level-reset", 50, true, PerfSuite::resetLevel),
+        // Loads the sprite's idle, jump and run images
+        new Benchmark("sprite-load", 50, true, () -> () -> new GameSprite(new Pane()).getSpeed())
+    );
+
+    private static LongSupplier interpret(GeneratedLevel level) {
+        Program program = Parser.parse(level.getSolution());
+        return () -> {
+            World world = level.createWorld();
+            Interpreter interpreter = new Interpreter(world, null);
+            interpreter.run(program);
+            return interpreter.getSteps();
+        };
+    }
+
+    private static LongSupplier grade() {
+        HeadlessGrader grader = new HeadlessGrader();
+        return () -> {
+            long steps = 0;
+            for (int level = 1; level <= 5; level++) {
+                steps += grader.grade(level, GradingClient.getSampleProgram(level)).getSteps();
+            }
+            return steps;
+        };
+    }
+
+    private static LongSupplier buildScenes() {
+        // Levels built here are never completed, so they have no game to go back to
+        BaseLevel[] levels = {
+            new CommandsLevel(null), new VariablesLevel(null), new ConditionalsLevel(null),
+            new LoopsLevel(null), new FreeRoamLevel(null)
+        };
+        long[] built = new long[1];
+        return () -> levels[(int) (built[0]++ % levels.length)].createLevelScene().getRoot()
+            .getChildrenUnmodifiable().size();
+    }
+
+    private static LongSupplier resetLevel() {
+        ResettableLevel level = new ResettableLevel();
+        level.createLevelScene();
+        return () -> {
+            level.reset();
+            return level.isCompleted() ? 1 : 0;
+        };
+    }
+
+    /**
+     * The free roam level with its reset opened up to the suite
+     */
+    private static final class ResettableLevel extends FreeRoamLevel {
+        ResettableLevel() {
+            super(null);
+        }
+
+        void reset() {
+            resetLevel();
+        }
+    }
+
+    /**
+     * Time a benchmark, returning the median microseconds per operation
+     */
+    private static double measure(Benchmark benchmark) {
+        LongSupplier operation = benchmark.setUp.get();
+        double[] rounds = new double[ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+            long result = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < benchmark.opsPerRound; i++) {
+                result += operation.getAsLong();
+            }
+            long elapsed = System.nanoTime() - start;
+            sink += result;
+            if (round >= 0) {
+                rounds[round] = elapsed / 1e3 / benchmark.opsPerRound;
+            }
+        }
+        Arrays.sort(rounds);
+        return rounds[ROUNDS / 2];
+    }
+
+    /**
+     * Time a benchmark on the FX thread, where the scene graph it builds belongs
+     */
+    private static double measureOnFxThread(Benchmark benchmark) throws InterruptedException {
+        FutureTask<Double> task = new FutureTask<>(() -> measure(benchmark));
+        Platform.runLater(task);
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(benchmark.name + " failed", e.getCause());
+        }
+    }
+
+    private static Map<String, Double> loadBaseline(Path file) throws IOException {
+        Map<String, Double> baseline = new TreeMap<>();
+        if (Files.exists(file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            for (String name : properties.stringPropertyNames()) {
+                baseline.put(name, Double.parseDouble(properties.getProperty(name)));
+            }
+        }
+        return baseline;
+    }
+
+    private static void saveBaseline(Path file, Map<String, Double> baseline) throws IOException {
+        // Written by hand so the checked-in file stays sorted and free of timestamps
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("# PerfSuite baseline: median microseconds per operation\n");
+            writer.write("# Regenerate with: PerfSuite --record\n");
+            for (Map.Entry<String, Double> entry : baseline.entrySet()) {
+                writer.write(String.format("%s=%.1f%n", entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Regression check: PerfSuite [--baseline=file] [--tolerance=percent] [--record] [--headless] [benchmark...]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path baselineFile = DEFAULT_BASELINE;
+        double tolerance = DEFAULT_TOLERANCE;
+        boolean record = false;
+        List<String> names = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baselineFile = Paths.get(arg.substring("--baseline=".length()));
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+            } else if (arg.equals("--record")) {
+                record = true;
+            } else if (arg.equals("--headless")) {
+                System.setProperty("glass.platform", "Monocle");
+                System.setProperty("monocle.platform", "Headless");
+                System.setProperty("prism.order", "sw");
+            } else {
+                names.add(arg);
+            }
+        }
+
+        List<Benchmark> selected = new ArrayList<>();
+        List<String> unknown = new ArrayList<>(names);
+        for (Benchmark benchmark : BENCHMARKS) {
+            if (names.isEmpty() || names.contains(benchmark.name)) {
+                selected.add(benchmark);
+                unknown.remove(benchmark.name);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown benchmarks: " + unknown);
+        }
+
+        boolean toolkit = selected.stream().anyMatch(benchmark -> benchmark.needsToolkit);
+        if (toolkit) {
+            Platform.startup(() -> { });
+        }
+
+        Map<String, Double> baseline = loadBaseline(baselineFile);
+        System.out.printf("%-20s %12s %12s %9s  %s%n", "benchmark", "baseline us", "current us", "delta", "result");
+        int failed = 0;
+        for (Benchmark benchmark : selected) {
+            double current = benchmark.needsToolkit ? measureOnFxThread(benchmark) : measure(benchmark);
+            Double expected = baseline.get(benchmark.name);
+            if (expected == null) {
+                failed += record ? 0 : 1;
+                System.out.printf("%-20s %12s %12.1f %9s  %s%n", benchmark.name, "-", current, "-",
+                    record ? "NEW" : "FAIL (no baseline)");
+            } else {
+                double delta = (current - expected) / expected * 100;
+                boolean slower = delta > tolerance;
+                failed += slower && !record ? 1 : 0;
+                System.out.printf("%-20s %12.1f %12.1f %+8.1f%%  %s%n", benchmark.name, expected, current, delta,
+                    slower ? "FAIL" : "PASS");
+            }
+            baseline.put(benchmark.name, current);
+        }
+
+        if (record) {
+            saveBaseline(baselineFile, baseline);
+            System.out.println("Recorded " + selected.size() + " results in " + baselineFile);
+        } else if (failed > 0) {
+            System.out.printf("FAILED: %d of %d benchmarks without a baseline or more than %.0f%% slower than it%n",
+                failed, selected.size(), tolerance);
+        } else {
+            System.out.printf("PASSED: %d benchmarks within %.0f%% of the baseline%n", selected.size(), tolerance);
+        }
+
+        if (toolkit) {
+            Platform.exit();
+        }
+        System.exit(failed > 0 ? 1 : 0);
+    }
+}
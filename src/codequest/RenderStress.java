@@ -0,0 +1,196 @@
+package codequest;
+
+import codequest.levels.FreeRoamLevel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+/**
+ * RenderStress - Finds how many sprites a level can animate before frames are dropped
+ * For each sprite count N the free roam level is cleared and N sprites are spawned on its
+ * sprite layer. Every pulse a fixed share of them move, jump or shoot, so the number of
+ * sprites, projectiles in flight and running animations is the same from run to run. The
+ * time between pulses is recorded with an AnimationTimer after a warmup, and the report
+ * gives p50, p99 and max per N; at 60 frames a second anything over 16.7ms is a frame lost.
+ *
+ * Usage: RenderStress [counts] [pulses] [--headless]
+ * counts is a comma separated list, such as 10,100,1000. With --headless the harness runs
+ * on Monocle's headless platform with software rendering, for machines without a display;
+ * the Monocle jar has to be on the module or class path.
+ */
+public class RenderStress extends Application {
+
+    private static final int[] DEFAULT_COUNTS = {10, 100, 500, 1000, 2000, 5000};
+    private static final int DEFAULT_PULSES = 600;
+    private static final int WARMUP_PULSES = 60;
+
+    // Each sprite acts once every ACTION_PERIOD pulses, working through SCRIPT in order
+    private static final int ACTION_PERIOD = 20;
+    private static final String[] SCRIPT = {
+        "moveRight", "shoot", "moveRight", "jump", "moveLeft", "shoot", "moveLeft", "shoot"
+    };
+
+    private int[] counts;
+    private int pulses;
+    private StressLevel level;
+
+    // The count being measured and how far into its run the harness is
+    private int countIndex = -1;
+    private int pulse;
+    private long lastPulse;
+    private long[] frameTimes;
+    private long spawnNanos;
+    private final List<GameSprite> sprites = new ArrayList<>();
+    private final StringBuilder report = new StringBuilder();
+
+    /**
+     * The free roam level, opened up so the harness can spawn on its sprite layer
+     */
+    private static final class StressLevel extends FreeRoamLevel {
+        StressLevel(GameManager gameManager) {
+            super(gameManager);
+        }
+
+        void clearSprites() {
+            spriteLayer.getChildren().clear();
+        }
+
+        GameSprite spawn() {
+            return new GameSprite(spriteLayer);
+        }
+
+        int getNodeCount() {
+            return spriteLayer.getChildren().size();
+        }
+    }
+
+    private final AnimationTimer recorder = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (countIndex < 0 || pulse == WARMUP_PULSES + pulses) {
+                if (countIndex >= 0) {
+                    report(counts[countIndex]);
+                }
+                if (++countIndex == counts.length) {
+                    stop();
+                    System.out.print(report);
+                    Platform.exit();
+                    return;
+                }
+                spawn(counts[countIndex]);
+                lastPulse = System.nanoTime();
+                return;
+            }
+
+            // Time since the last pulse, which takes in rendering the frame that pulse changed
+            long start = System.nanoTime();
+            if (pulse >= WARMUP_PULSES) {
+                frameTimes[pulse - WARMUP_PULSES] = start - lastPulse;
+            }
+            act(pulse);
+            pulse++;
+            lastPulse = start;
+        }
+    };
+
+    @Override
+    public void start(Stage stage) {
+        List<String> args = new ArrayList<>(getParameters().getUnnamed());
+        args.remove("--headless");
+        counts = args.size() > 0 ? parseCounts(args.get(0)) : DEFAULT_COUNTS;
+        pulses = args.size() > 1 ? Integer.parseInt(args.get(1)) : DEFAULT_PULSES;
+
+        level = new StressLevel(new GameManager(stage));
+        Scene scene = level.createLevelScene();
+        stage.setTitle("CodeQuest - Render Stress");
+        stage.setScene(scene);
+        stage.show();
+        level.sceneShown();
+
+        report.append(String.format("%8s %10s %8s %8s %8s %8s %10s%n",
+            "sprites", "spawn ms", "nodes", "p50 ms", "p99 ms", "max ms", "animations"));
+        recorder.start();
+    }
+
+    /**
+     * Clear the level and put count fresh sprites on it, with speeds spread so they fan out
+     */
+    private void spawn(int count) {
+        long start = System.nanoTime();
+        level.clearSprites();
+        sprites.clear();
+        for (int i = 0; i < count; i++) {
+            GameSprite sprite = level.spawn();
+            sprite.setSpeed(1 + i % 10);
+            sprites.add(sprite);
+        }
+        spawnNanos = System.nanoTime() - start;
+        frameTimes = new long[pulses];
+        pulse = 0;
+    }
+
+    /**
+     * Run a pulse's share of the script: sprite i acts on pulses where i + tick is a
+     * multiple of ACTION_PERIOD
+     */
+    private void act(int tick) {
+        for (int i = Math.floorMod(-tick, ACTION_PERIOD); i < sprites.size(); i += ACTION_PERIOD) {
+            GameSprite sprite = sprites.get(i);
+            switch (SCRIPT[((i + tick) / ACTION_PERIOD) % SCRIPT.length]) {
+                case "moveRight":
+                    sprite.moveRight();
+                    break;
+                case "moveLeft":
+                    sprite.moveLeft();
+                    break;
+                case "jump":
+                    sprite.jump();
+                    break;
+                case "shoot":
+                    sprite.shoot();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void report(int count) {
+        long[] sorted = frameTimes.clone();
+        Arrays.sort(sorted);
+        report.append(String.format("%8d %10.1f %8d %8.2f %8.2f %8.2f %10d%n",
+            count, spawnNanos / 1e6, level.getNodeCount(),
+            sorted[sorted.length / 2] / 1e6,
+            sorted[(int) (sorted.length * 0.99)] / 1e6,
+            sorted[sorted.length - 1] / 1e6,
+            AnimationRegistry.getRunningCount()));
+    }
+
+    private static int[] parseCounts(String list) {
+        String[] parts = list.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * Stress test: RenderStress [counts] [pulses] [--headless]
+     */
+    public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--headless")) {
+            // Read when the toolkit starts, so they have to be set before launch
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        launch(args);
+    }
+}
@@ -0,0 +1,125 @@
+package codequest;
+
+import codequest.levels.Level;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+/**
+ * ScenePrefetcher - Builds a level's scene before it is needed
+ * Nodes may be created on any thread until their scene is shown, so the scene graph (and
+ * the sprite images it loads) is built on a background thread. What has to happen on the
+ * FX thread, styling and the first layout, is then done one slice per pulse so none of
+ * them holds up a frame. Taking the scene finishes whatever is left. Animations are the
+ * exception: AnimationRegistry is FX-only, so createLevelScene() must not start any.
+ *
+ * Only used on the FX thread, apart from the background build itself.
+ */
+final class ScenePrefetcher {
+
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "codequest-scene-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Level level;
+    private CompletableFuture<Scene> building;
+    private final Queue<Runnable> slices = new ArrayDeque<>();
+    private Scene queued; // the scene the slices belong to
+
+    // Finishes one slice per pulse once the background build is done
+    private final AnimationTimer finisher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            Runnable slice = slices.poll();
+            if (slice == null) {
+                stop();
+                return;
+            }
+            slice.run();
+        }
+    };
+
+    /**
+     * Start building a level's scene in the background, replacing any earlier prefetch
+     */
+    void prefetch(Level next) {
+        cancel();
+        level = next;
+        CompletableFuture<Scene> future = CompletableFuture.supplyAsync(next::createLevelScene, BUILDER);
+        building = future;
+        future.thenAccept(scene -> Platform.runLater(() -> {
+            // A newer prefetch or a take() may have happened in the meantime
+            if (building == future) {
+                queueSlices(scene);
+                finisher.start();
+            }
+        }));
+    }
+
+    /**
+     * Get a level's scene ready to show, built in the background if it was prefetched
+     */
+    Scene take(Level wanted) {
+        Scene scene = wanted == level ? await(building) : null;
+        if (scene == null) {
+            cancel();
+            scene = wanted.createLevelScene();
+        }
+        if (queued != scene) {
+            // Built here, or built but the pulse that queues the slices has not come yet
+            queueSlices(scene);
+        }
+
+        finisher.stop();
+        for (Runnable slice; (slice = slices.poll()) != null; ) {
+            slice.run();
+        }
+        level = null;
+        building = null;
+        queued = null;
+        return scene;
+    }
+
+    /**
+     * Wait for a background build, returning null if there was none or it failed
+     */
+    private static Scene await(CompletableFuture<Scene> future) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            System.out.println("Could not prefetch the next level: " + e.getCause());
+            return null;
+        }
+    }
+
+    private void queueSlices(Scene scene) {
+        queued = scene;
+        slices.clear();
+        slices.add(() -> scene.getRoot().applyCss());
+        slices.add(() -> scene.getRoot().layout());
+    }
+
+    /**
+     * Forget the current prefetch, first waiting for a build that is still writing the level
+     */
+    private void cancel() {
+        finisher.stop();
+        slices.clear();
+        await(building);
+        level = null;
+        building = null;
+        queued = null;
+    }
+}
@@ -0,0 +1,740 @@
+package codequest.editor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import codequest.lang.SyntaxError;
+import codequest.lang.TokenType;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.Group;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+/**
+ * CodeEditor - A syntax-highlighting code editor that only builds nodes for visible lines
+ * The text lives in a Document of lines. Each visible row of the editor is a reusable
+ * LineView; scrolling hands the rows new lines, and a row only rebuilds its token nodes
+ * when its line's text or errors changed. Lines are lexed when first drawn after an edit,
+ * so a pasted program of thousands of lines costs no more per keystroke than a short one.
+ */
+public class CodeEditor extends Region {
+
+    private static final Font FONT = Font.font("Monospaced", 13);
+    private static final Color TEXT_COLOR = Color.web("#dfe6e9");
+    private static final Color KEYWORD_COLOR = Color.web("#c678dd");
+    private static final Color COMMAND_COLOR = Color.web("#61afef");
+    private static final Color NUMBER_COLOR = Color.web("#d19a66");
+    private static final Color COMMENT_COLOR = Color.web("#7f8c8d");
+    private static final Color ERROR_COLOR = Color.web("#ff7675");
+    private static final Color GUTTER_COLOR = Color.web("#636e72");
+    private static final Color SELECTION_COLOR = Color.web("#74b9ff", 0.3);
+    private static final Color MARK_COLOR = Color.web("#fdcb6e", 0.25);
+    private static final Color HEAT_COLOR = Color.web("#e17055");
+
+    private static final String INDENT = "    ";
+    private static final double PADDING = 4;
+
+    // Undo steps kept; older ones are dropped
+    private static final int MAX_UNDO = 500;
+
+    private final Document document = new Document();
+    private final double charWidth;
+    private final double lineHeight;
+
+    private final Pane viewport = new Pane();
+    private final Rectangle viewportClip = new Rectangle();
+    private final ScrollBar verticalBar = new ScrollBar();
+    private final ScrollBar horizontalBar = new ScrollBar();
+    private final Rectangle caret;
+    private final Text prompt = new Text();
+    private final List<LineView> rows = new ArrayList<>();
+    private double gutterWidth;
+
+    // Caret and the other end of the selection, as 0-based line and column
+    private int caretLine;
+    private int caretColumn;
+    private int anchorLine;
+    private int anchorColumn;
+    private int preferredColumn = -1; // column kept while moving up and down
+
+    private int length = 0;
+    private int markedLine = -1;
+    private long[] lineHeat = new long[0]; // statements run per 0-based line, from a profile
+    private double maxHeat;
+    private final Map<Integer, List<SyntaxError>> errorsByLine = new HashMap<>();
+    private final Deque<Edit> undo = new ArrayDeque<>();
+    private final Deque<Edit> redo = new ArrayDeque<>();
+    private EditListener editListener;
+
+    public CodeEditor() {
+        Text measure = new Text("M");
+        measure.setFont(FONT);
+        charWidth = measure.getLayoutBounds().getWidth();
+        lineHeight = Math.ceil(measure.getLayoutBounds().getHeight());
+
+        caret = new Rectangle(2, lineHeight, TEXT_COLOR);
+        caret.setManaged(false);
+        prompt.setFont(FONT);
+        prompt.setFill(GUTTER_COLOR);
+        prompt.setTextOrigin(VPos.TOP);
+        prompt.setManaged(false);
+
+        viewport.setClip(viewportClip);
+        viewport.setCursor(Cursor.TEXT);
+        viewport.getChildren().addAll(prompt, caret);
+        verticalBar.setOrientation(Orientation.VERTICAL);
+        verticalBar.valueProperty().addListener((observable, oldValue, newValue) -> requestLayout());
+        horizontalBar.valueProperty().addListener((observable, oldValue, newValue) -> requestLayout());
+        getChildren().addAll(viewport, verticalBar, horizontalBar);
+
+        setFocusTraversable(true);
+        focusedProperty().addListener((observable, oldValue, newValue) -> requestLayout());
+        addEventHandler(KeyEvent.KEY_PRESSED, this::keyPressed);
+        addEventHandler(KeyEvent.KEY_TYPED, this::keyTyped);
+        viewport.addEventHandler(MouseEvent.MOUSE_PRESSED, this::mousePressed);
+        viewport.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::mouseDragged);
+        addEventHandler(ScrollEvent.SCROLL, this::scrolled);
+    }
+
+    public String getText() {
+        return document.getText();
+    }
+
+    /**
+     * Replace the whole text, moving the caret to the start and clearing undo
+     */
+    public void setText(String text) {
+        document.setText(text == null ? "" : text);
+        length = document.length();
+        caretLine = caretColumn = anchorLine = anchorColumn = 0;
+        preferredColumn = -1;
+        undo.clear();
+        redo.clear();
+        lineHeat = new long[0];
+        verticalBar.setValue(0);
+        horizontalBar.setValue(0);
+        if (editListener != null) {
+            editListener.replaced();
+        }
+        requestLayout();
+    }
+
+    public int getLineCount() {
+        return document.getLineCount();
+    }
+
+    public void setPromptText(String text) {
+        prompt.setText(text);
+    }
+
+    public void setEditListener(EditListener editListener) {
+        this.editListener = editListener;
+    }
+
+    /**
+     * Mark the given errors on their lines, replacing the previous ones
+     */
+    public void setErrors(List<SyntaxError> errors) {
+        errorsByLine.clear();
+        for (SyntaxError error : errors) {
+            errorsByLine.computeIfAbsent(error.getLine() - 1, line -> new ArrayList<>()).add(error);
+        }
+        requestLayout();
+    }
+
+    /**
+     * Highlight one 0-based line, such as the statement a debugger is stopped at, and
+     * scroll it into view; -1 clears the highlight
+     */
+    public void setMarkedLine(int line) {
+        markedLine = line;
+        if (line >= 0 && line < document.getLineCount()) {
+            double top = line * lineHeight;
+            double height = viewport.getHeight();
+            if (top < verticalBar.getValue() || top + lineHeight > verticalBar.getValue() + height) {
+                verticalBar.setValue(clamp(top - height / 2, verticalBar.getMax()));
+            }
+        }
+        requestLayout();
+    }
+
+    /**
+     * Shade the gutter of each 0-based line by how many statements ran on it, busiest
+     * brightest, until the text is next edited; an empty array clears the shading
+     */
+    public void setLineHeat(long[] counts) {
+        lineHeat = counts.clone();
+        long max = 0;
+        for (long count : lineHeat) {
+            max = Math.max(max, count);
+        }
+        // Counts span orders of magnitude once loops are involved, so shade on a log scale
+        maxHeat = Math.log1p(max);
+        requestLayout();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return 600;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return lineHeight * 8;
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return lineHeight * 2 + horizontalBar.prefHeight(-1);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double barWidth = verticalBar.prefWidth(-1);
+        double barHeight = horizontalBar.prefHeight(-1);
+        double width = Math.max(0, getWidth() - barWidth);
+        double height = Math.max(0, getHeight() - barHeight);
+        viewport.resizeRelocate(0, 0, width, height);
+        viewportClip.setWidth(width);
+        viewportClip.setHeight(height);
+        verticalBar.resizeRelocate(width, 0, barWidth, height);
+        horizontalBar.resizeRelocate(0, height, width, barHeight);
+
+        int lineCount = document.getLineCount();
+        gutterWidth = (Integer.toString(lineCount).length() + 1) * charWidth + PADDING;
+        double textWidth = Math.max(0, width - gutterWidth - PADDING);
+
+        verticalBar.setMax(Math.max(0, lineCount * lineHeight - height));
+        verticalBar.setVisibleAmount(height);
+        verticalBar.setUnitIncrement(lineHeight);
+        horizontalBar.setMax(Math.max(0, (document.getLongestLine() + 1) * charWidth - textWidth));
+        horizontalBar.setVisibleAmount(textWidth);
+        horizontalBar.setUnitIncrement(charWidth);
+
+        layoutRows(height);
+    }
+
+    /**
+     * Give each row the line it now shows; rows beyond the visible lines are reused or hidden
+     */
+    private void layoutRows(double height) {
+        double scrollTop = verticalBar.getValue();
+        double textX = gutterWidth + PADDING - horizontalBar.getValue();
+        int first = (int) (scrollTop / lineHeight);
+        double firstY = first * lineHeight - scrollTop;
+
+        int visible = (int) Math.ceil(height / lineHeight) + 1;
+        while (rows.size() < visible) {
+            LineView row = new LineView();
+            rows.add(row);
+            viewport.getChildren().add(viewport.getChildren().size() - 1, row);
+        }
+        while (rows.size() > visible) {
+            viewport.getChildren().remove(rows.remove(rows.size() - 1));
+        }
+
+        int[] start = selectionStart();
+        int[] end = selectionEnd();
+        for (int i = 0; i < rows.size(); i++) {
+            int line = first + i;
+            LineView row = rows.get(i);
+            row.setLayoutY(firstY + i * lineHeight);
+            row.show(line < document.getLineCount() ? line : -1, textX, start, end);
+        }
+
+        boolean empty = length == 0;
+        prompt.setVisible(empty && !isFocused());
+        prompt.setLayoutX(gutterWidth + PADDING);
+        prompt.setLayoutY(firstY);
+
+        caret.setVisible(isFocused());
+        caret.setLayoutX(textX + caretColumn * charWidth - 1);
+        caret.setLayoutY(caretLine * lineHeight - scrollTop);
+    }
+
+    private void keyPressed(KeyEvent event) {
+        boolean shift = event.isShiftDown();
+        if (event.isShortcutDown()) {
+            switch (event.getCode()) {
+                case A:
+                    anchorLine = anchorColumn = 0;
+                    moveCaret(document.getLineCount() - 1, lastColumn(document.getLineCount() - 1), true);
+                    break;
+                case C:
+                    copy();
+                    break;
+                case X:
+                    copy();
+                    replaceSelection("");
+                    break;
+                case V:
+                    String pasted = Clipboard.getSystemClipboard().getString();
+                    if (pasted != null) {
+                        replaceSelection(pasted);
+                    }
+                    break;
+                case Z:
+                    if (shift) {
+                        redo();
+                    } else {
+                        undo();
+                    }
+                    break;
+                case Y:
+                    redo();
+                    break;
+                case HOME:
+                    moveCaret(0, 0, shift);
+                    break;
+                case END:
+                    moveCaret(document.getLineCount() - 1, lastColumn(document.getLineCount() - 1), shift);
+                    break;
+                default:
+                    return;
+            }
+            event.consume();
+            return;
+        }
+
+        int pageLines = Math.max(1, (int) (viewport.getHeight() / lineHeight) - 1);
+        switch (event.getCode()) {
+            case LEFT:
+                if (hasSelection() && !shift) {
+                    int[] start = selectionStart();
+                    moveCaret(start[0], start[1], false);
+                } else if (caretColumn > 0) {
+                    moveCaret(caretLine, caretColumn - 1, shift);
+                } else if (caretLine > 0) {
+                    moveCaret(caretLine - 1, lastColumn(caretLine - 1), shift);
+                }
+                break;
+            case RIGHT:
+                if (hasSelection() && !shift) {
+                    int[] end = selectionEnd();
+                    moveCaret(end[0], end[1], false);
+                } else if (caretColumn < lastColumn(caretLine)) {
+                    moveCaret(caretLine, caretColumn + 1, shift);
+                } else if (caretLine < document.getLineCount() - 1) {
+                    moveCaret(caretLine + 1, 0, shift);
+                }
+                break;
+            case UP:
+                moveVertically(-1, shift);
+                break;
+            case DOWN:
+                moveVertically(1, shift);
+                break;
+            case PAGE_UP:
+                moveVertically(-pageLines, shift);
+                break;
+            case PAGE_DOWN:
+                moveVertically(pageLines, shift);
+                break;
+            case HOME:
+                moveCaret(caretLine, 0, shift);
+                break;
+            case END:
+                moveCaret(caretLine, lastColumn(caretLine), shift);
+                break;
+            case BACK_SPACE:
+                if (!hasSelection()) {
+                    if (caretColumn > 0) {
+                        anchorColumn = caretColumn - 1;
+                    } else if (caretLine > 0) {
+                        anchorLine = caretLine - 1;
+                        anchorColumn = lastColumn(anchorLine);
+                    }
+                }
+                replaceSelection("");
+                break;
+            case DELETE:
+                if (!hasSelection()) {
+                    if (caretColumn < lastColumn(caretLine)) {
+                        anchorColumn = caretColumn + 1;
+                    } else if (caretLine < document.getLineCount() - 1) {
+                        anchorLine = caretLine + 1;
+                        anchorColumn = 0;
+                    }
+                }
+                replaceSelection("");
+                break;
+            case ENTER:
+                // Keep the current line's indentation
+                String line = document.getLine(caretLine);
+                int indent = 0;
+                while (indent < line.length() && line.charAt(indent) == ' ') {
+                    indent++;
+                }
+                replaceSelection("\n" + line.substring(0, Math.min(indent, caretColumn)));
+                break;
+            case TAB:
+                replaceSelection(INDENT);
+                break;
+            default:
+                return;
+        }
+        event.consume();
+    }
+
+    private void keyTyped(KeyEvent event) {
+        // Control and command shortcuts arrive here too; AltGr characters have both set
+        if ((event.isControlDown() || event.isMetaDown()) && !event.isAltDown()) {
+            return;
+        }
+        String character = event.getCharacter();
+        if (character.isEmpty() || character.equals(KeyEvent.CHAR_UNDEFINED)) {
+            return;
+        }
+        char c = character.charAt(0);
+        if (c < ' ' || c == 127) {
+            return;
+        }
+        replaceSelection(character);
+        event.consume();
+    }
+
+    private void mousePressed(MouseEvent event) {
+        requestFocus();
+        int[] position = positionAt(event.getX(), event.getY());
+        moveCaret(position[0], position[1], event.isShiftDown());
+        event.consume();
+    }
+
+    private void mouseDragged(MouseEvent event) {
+        int[] position = positionAt(event.getX(), event.getY());
+        moveCaret(position[0], position[1], true);
+        event.consume();
+    }
+
+    private void scrolled(ScrollEvent event) {
+        verticalBar.setValue(clamp(verticalBar.getValue() - event.getDeltaY(), verticalBar.getMax()));
+        horizontalBar.setValue(clamp(horizontalBar.getValue() - event.getDeltaX(), horizontalBar.getMax()));
+        event.consume();
+    }
+
+    /**
+     * Get the line and column nearest to a point in the viewport
+     */
+    private int[] positionAt(double x, double y) {
+        int line = (int) ((y + verticalBar.getValue()) / lineHeight);
+        line = Math.max(0, Math.min(line, document.getLineCount() - 1));
+        int column = (int) Math.round((x - gutterWidth - PADDING + horizontalBar.getValue()) / charWidth);
+        column = Math.max(0, Math.min(column, lastColumn(line)));
+        return new int[] {line, column};
+    }
+
+    private void moveVertically(int lines, boolean select) {
+        if (preferredColumn < 0) {
+            preferredColumn = caretColumn;
+        }
+        int line = Math.max(0, Math.min(caretLine + lines, document.getLineCount() - 1));
+        int column = preferredColumn;
+        moveCaret(line, Math.min(column, lastColumn(line)), select);
+        preferredColumn = column;
+    }
+
+    private void moveCaret(int line, int column, boolean select) {
+        caretLine = line;
+        caretColumn = column;
+        if (!select) {
+            anchorLine = line;
+            anchorColumn = column;
+        }
+        preferredColumn = -1;
+        revealCaret();
+        requestLayout();
+    }
+
+    private void copy() {
+        if (hasSelection()) {
+            int[] start = selectionStart();
+            int[] end = selectionEnd();
+            ClipboardContent content = new ClipboardContent();
+            content.putString(document.getText(start[0], start[1], end[0], end[1]));
+            Clipboard.getSystemClipboard().setContent(content);
+        }
+    }
+
+    private void replaceSelection(String text) {
+        int[] start = selectionStart();
+        int[] end = selectionEnd();
+        if (text.isEmpty() && start[0] == end[0] && start[1] == end[1]) {
+            return;
+        }
+        Edit edit = replace(start[0], start[1], end[0], end[1], text);
+
+        // Typing one character after another is undone as one step
+        Edit last = undo.peek();
+        if (last != null && edit.removed.isEmpty() && last.removed.isEmpty() && isWordCharacter(edit.inserted)
+                && isWordCharacter(last.inserted.substring(last.inserted.length() - 1))
+                && last.offset + last.inserted.length() == edit.offset) {
+            undo.pop();
+            edit = new Edit(last.offset, "", last.inserted + edit.inserted);
+        }
+        undo.push(edit);
+        if (undo.size() > MAX_UNDO) {
+            undo.removeLast();
+        }
+        redo.clear();
+    }
+
+    private void undo() {
+        Edit edit = undo.poll();
+        if (edit != null) {
+            int[] start = document.positionOf(edit.offset);
+            int[] end = document.positionOf(edit.offset + edit.inserted.length());
+            replace(start[0], start[1], end[0], end[1], edit.removed);
+            redo.push(edit);
+        }
+    }
+
+    private void redo() {
+        Edit edit = redo.poll();
+        if (edit != null) {
+            int[] start = document.positionOf(edit.offset);
+            int[] end = document.positionOf(edit.offset + edit.removed.length());
+            replace(start[0], start[1], end[0], end[1], edit.inserted);
+            undo.push(edit);
+        }
+    }
+
+    /**
+     * Replace the text between two ordered positions and leave the caret after it
+     */
+    private Edit replace(int fromLine, int fromColumn, int toLine, int toColumn, String text) {
+        int offset = document.offsetOf(fromLine, fromColumn);
+        String removed = document.getText(fromLine, fromColumn, toLine, toColumn);
+        int[] end = document.replace(fromLine, fromColumn, toLine, toColumn, text);
+        String inserted = document.getText(fromLine, fromColumn, end[0], end[1]);
+        length += inserted.length() - removed.length();
+        markedLine = -1;
+        lineHeat = new long[0]; // counts belong to the lines as they were when profiled
+
+        moveCaret(end[0], end[1], false);
+        if (editListener != null) {
+            editListener.edited(offset, removed.length(), inserted.length(), length);
+        }
+        return new Edit(offset, removed, inserted);
+    }
+
+    /**
+     * Scroll just far enough to show the caret
+     */
+    private void revealCaret() {
+        double top = caretLine * lineHeight;
+        double height = viewport.getHeight();
+        if (top < verticalBar.getValue()) {
+            verticalBar.setValue(top);
+        } else if (height > 0 && top + lineHeight > verticalBar.getValue() + height) {
+            verticalBar.setMax(Math.max(verticalBar.getMax(), top + lineHeight - height));
+            verticalBar.setValue(top + lineHeight - height);
+        }
+
+        double left = caretColumn * charWidth;
+        double width = viewport.getWidth() - gutterWidth - PADDING * 2;
+        if (left < horizontalBar.getValue()) {
+            horizontalBar.setValue(left);
+        } else if (width > 0 && left > horizontalBar.getValue() + width) {
+            horizontalBar.setMax(Math.max(horizontalBar.getMax(), left - width));
+            horizontalBar.setValue(left - width);
+        }
+    }
+
+    private boolean hasSelection() {
+        return caretLine != anchorLine || caretColumn != anchorColumn;
+    }
+
+    private boolean caretFirst() {
+        return caretLine < anchorLine || (caretLine == anchorLine && caretColumn < anchorColumn);
+    }
+
+    private int[] selectionStart() {
+        return caretFirst() ? new int[] {caretLine, caretColumn} : new int[] {anchorLine, anchorColumn};
+    }
+
+    private int[] selectionEnd() {
+        return caretFirst() ? new int[] {anchorLine, anchorColumn} : new int[] {caretLine, caretColumn};
+    }
+
+    private int lastColumn(int line) {
+        return document.getLine(line).length();
+    }
+
+    private static boolean isWordCharacter(String text) {
+        return text.length() == 1 && Character.isLetterOrDigit(text.charAt(0));
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private static Color colorOf(TokenType type, boolean call) {
+        switch (type) {
+            case FOR:
+            case IF:
+            case INT:
+            case TRUE:
+                return KEYWORD_COLOR;
+            case IDENTIFIER:
+                return call ? COMMAND_COLOR : TEXT_COLOR;
+            case NUMBER:
+                return NUMBER_COLOR;
+            case COMMENT:
+                return COMMENT_COLOR;
+            case ERROR:
+                return ERROR_COLOR;
+            default:
+                return TEXT_COLOR;
+        }
+    }
+
+    /**
+     * One reversible change: inserted replaced removed at offset
+     */
+    private static final class Edit {
+        final int offset;
+        final String removed;
+        final String inserted;
+
+        Edit(int offset, String removed, String inserted) {
+            this.offset = offset;
+            this.removed = removed;
+            this.inserted = inserted;
+        }
+    }
+
+    /**
+     * One visible row: the selection, the highlighted tokens, error underlines and the line
+     * number, shaded by its profile heat
+     */
+    private final class LineView extends Group {
+        private final Rectangle mark = new Rectangle(0, lineHeight, MARK_COLOR);
+        private final Rectangle selection = new Rectangle(0, lineHeight, SELECTION_COLOR);
+        private final Group tokens = new Group();
+        private final Group underlines = new Group();
+        private final Rectangle gutter = new Rectangle(0, lineHeight, Color.web("#2d3436"));
+        private final Rectangle heat = new Rectangle(0, lineHeight, HEAT_COLOR);
+        private final Text number = new Text();
+        private final Tooltip tooltip = new Tooltip();
+
+        // What the nodes were last built for
+        private int shownLine = -1;
+        private String shownText;
+        private List<SyntaxError> shownErrors;
+
+        LineView() {
+            number.setFont(FONT);
+            number.setTextOrigin(VPos.TOP);
+            Group text = new Group(tokens, underlines);
+            getChildren().addAll(mark, selection, text, gutter, heat, number);
+        }
+
+        void show(int line, double textX, int[] selectionStart, int[] selectionEnd) {
+            setVisible(line >= 0);
+            if (line < 0) {
+                return;
+            }
+
+            String content = document.getLine(line);
+            List<SyntaxError> errors = errorsByLine.get(line);
+            if (line != shownLine || content != shownText || errors != shownErrors) {
+                rebuild(line, content, errors);
+            }
+
+            mark.setVisible(line == markedLine);
+            mark.setWidth(viewport.getWidth());
+            tokens.setLayoutX(textX);
+            underlines.setLayoutX(textX);
+            gutter.setWidth(gutterWidth);
+            long count = line < lineHeat.length ? lineHeat[line] : 0;
+            heat.setVisible(count > 0);
+            if (count > 0) {
+                heat.setWidth(gutterWidth);
+                heat.setOpacity(0.2 + 0.7 * Math.log1p(count) / maxHeat);
+            }
+            number.setLayoutX(gutterWidth - PADDING - number.getLayoutBounds().getWidth());
+
+            // Selection, with the line break shown as one extra column
+            boolean selected = line >= selectionStart[0] && line <= selectionEnd[0]
+                && !(selectionStart[0] == selectionEnd[0] && selectionStart[1] == selectionEnd[1]);
+            selection.setVisible(selected);
+            if (selected) {
+                int from = line == selectionStart[0] ? selectionStart[1] : 0;
+                int to = line == selectionEnd[0] ? selectionEnd[1] : content.length() + 1;
+                selection.setX(textX + from * charWidth);
+                selection.setWidth((to - from) * charWidth);
+            }
+        }
+
+        private void rebuild(int line, String content, List<SyntaxError> errors) {
+            shownLine = line;
+            shownText = content;
+            shownErrors = errors;
+
+            // Reuse the row's Text nodes; only the surplus is added or removed
+            int[] lineTokens = document.getTokens(line);
+            int count = lineTokens.length / 3;
+            while (tokens.getChildren().size() < count) {
+                Text token = new Text();
+                token.setFont(FONT);
+                token.setTextOrigin(VPos.TOP);
+                tokens.getChildren().add(token);
+            }
+            if (tokens.getChildren().size() > count) {
+                tokens.getChildren().remove(count, tokens.getChildren().size());
+            }
+            for (int i = 0; i < count; i++) {
+                TokenType type = Document.typeOf(lineTokens[i * 3]);
+                int start = lineTokens[i * 3 + 1];
+                int end = lineTokens[i * 3 + 2];
+                boolean call = i + 1 < count && Document.typeOf(lineTokens[i * 3 + 3]) == TokenType.LEFT_PAREN;
+                Text token = (Text) tokens.getChildren().get(i);
+                token.setText(content.substring(start, end));
+                token.setFill(colorOf(type, call));
+                token.setX(start * charWidth);
+            }
+
+            underlines.getChildren().clear();
+            number.setText(Integer.toString(line + 1));
+            number.setFill(errors == null ? GUTTER_COLOR : ERROR_COLOR);
+            if (errors == null) {
+                Tooltip.uninstall(number, tooltip);
+                return;
+            }
+
+            StringBuilder messages = new StringBuilder();
+            for (SyntaxError error : errors) {
+                int column = Math.max(0, error.getColumn() - 1);
+                int width = 1;
+                for (int i = 0; i < count; i++) {
+                    if (lineTokens[i * 3 + 1] == column) {
+                        width = lineTokens[i * 3 + 2] - column;
+                    }
+                }
+                Rectangle underline = new Rectangle(column * charWidth, lineHeight - 2, width * charWidth, 2);
+                underline.setFill(ERROR_COLOR);
+                underlines.getChildren().add(underline);
+                messages.append(messages.length() > 0 ? "\n" : "").append(error.getMessage());
+            }
+            tooltip.setText(messages.toString());
+            Tooltip.install(number, tooltip);
+        }
+    }
+}
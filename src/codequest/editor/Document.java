@@ -0,0 +1,187 @@
+package codequest.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import codequest.lang.Lexer;
+import codequest.lang.TokenType;
+
+/**
+ * Document - The text of a CodeEditor as a list of lines, each with cached tokens
+ * Tokens never span lines (comments end at the newline), so each line can be lexed on
+ * its own. An edit only drops the token cache of the lines it touched, and a line is
+ * lexed again the next time it is drawn.
+ */
+final class Document {
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final List<String> lines = new ArrayList<>();
+
+    // Tokens per line as {type, start, end} triples; null until the line is lexed
+    private final List<int[]> tokens = new ArrayList<>();
+
+    // Longest line seen since the last setText, for the horizontal scroll range
+    private int longestLine = 0;
+
+    Document() {
+        setText("");
+    }
+
+    void setText(String text) {
+        lines.clear();
+        tokens.clear();
+        longestLine = 0;
+        for (String line : normalize(text).split("\n", -1)) {
+            lines.add(line);
+            tokens.add(null);
+            longestLine = Math.max(longestLine, line.length());
+        }
+    }
+
+    String getText() {
+        return String.join("\n", lines);
+    }
+
+    int getLineCount() {
+        return lines.size();
+    }
+
+    String getLine(int line) {
+        return lines.get(line);
+    }
+
+    int getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * Get the length of the whole text
+     */
+    int length() {
+        int length = lines.size() - 1;
+        for (String line : lines) {
+            length += line.length();
+        }
+        return length;
+    }
+
+    /**
+     * Get the character offset of a line and column
+     */
+    int offsetOf(int line, int column) {
+        int offset = 0;
+        for (int i = 0; i < line; i++) {
+            offset += lines.get(i).length() + 1;
+        }
+        return offset + column;
+    }
+
+    /**
+     * Get the line and column of a character offset
+     */
+    int[] positionOf(int offset) {
+        int line = 0;
+        while (line < lines.size() - 1 && offset > lines.get(line).length()) {
+            offset -= lines.get(line).length() + 1;
+            line++;
+        }
+        return new int[] {line, Math.min(offset, lines.get(line).length())};
+    }
+
+    /**
+     * Get the text between two positions, which must be in order
+     */
+    String getText(int fromLine, int fromColumn, int toLine, int toColumn) {
+        if (fromLine == toLine) {
+            return lines.get(fromLine).substring(fromColumn, toColumn);
+        }
+        StringBuilder text = new StringBuilder(lines.get(fromLine).substring(fromColumn));
+        for (int i = fromLine + 1; i < toLine; i++) {
+            text.append('\n').append(lines.get(i));
+        }
+        return text.append('\n').append(lines.get(toLine), 0, toColumn).toString();
+    }
+
+    /**
+     * Replace the text between two positions, which must be in order
+     * Returns the line and column just after the inserted text.
+     */
+    int[] replace(int fromLine, int fromColumn, int toLine, int toColumn, String text) {
+        String head = lines.get(fromLine).substring(0, fromColumn);
+        String tail = lines.get(toLine).substring(toColumn);
+        String[] parts = normalize(text).split("\n", -1);
+
+        List<String> replacement = new ArrayList<>(parts.length);
+        for (int i = 0; i < parts.length; i++) {
+            String line = parts[i];
+            if (i == 0) {
+                line = head + line;
+            }
+            if (i == parts.length - 1) {
+                line = line + tail;
+            }
+            replacement.add(line);
+            longestLine = Math.max(longestLine, line.length());
+        }
+
+        // Reuse the list slots the edit covers, then insert or remove the difference
+        int covered = toLine - fromLine + 1;
+        int common = Math.min(covered, replacement.size());
+        for (int i = 0; i < common; i++) {
+            lines.set(fromLine + i, replacement.get(i));
+            tokens.set(fromLine + i, null);
+        }
+        if (replacement.size() > covered) {
+            List<String> extra = replacement.subList(common, replacement.size());
+            lines.addAll(fromLine + common, extra);
+            tokens.addAll(fromLine + common, Arrays.asList(new int[extra.size()][]));
+        } else if (covered > replacement.size()) {
+            lines.subList(fromLine + common, fromLine + covered).clear();
+            tokens.subList(fromLine + common, fromLine + covered).clear();
+        }
+
+        int endLine = fromLine + parts.length - 1;
+        int endColumn = (parts.length == 1 ? head.length() : 0) + parts[parts.length - 1].length();
+        return new int[] {endLine, endColumn};
+    }
+
+    /**
+     * Get a line's tokens as {type, start, end} triples, lexing it if it changed
+     */
+    int[] getTokens(int line) {
+        int[] lineTokens = tokens.get(line);
+        if (lineTokens == null) {
+            lineTokens = lex(lines.get(line));
+            tokens.set(line, lineTokens);
+        }
+        return lineTokens;
+    }
+
+    static TokenType typeOf(int ordinal) {
+        return TYPES[ordinal];
+    }
+
+    /**
+     * Use '\n' line ends and spaces for tabs, so a column is always one character
+     */
+    private static String normalize(String text) {
+        return text.replace("\r\n", "\n").replace('\r', '\n').replace("\t", "    ");
+    }
+
+    private static int[] lex(String line) {
+        int[] result = new int[24];
+        int size = 0;
+        Lexer lexer = new Lexer(line);
+        while (lexer.next() != TokenType.EOF) {
+            if (size + 3 > result.length) {
+                result = Arrays.copyOf(result, result.length * 2);
+            }
+            result[size++] = lexer.getType().ordinal();
+            result[size++] = lexer.getStart();
+            result[size++] = lexer.getEnd();
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
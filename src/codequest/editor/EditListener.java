@@ -0,0 +1,20 @@
+package codequest.editor;
+
+/**
+ * EditListener - Told about every change to a CodeEditor's text
+ * Edits are described by position and length only, so listening costs nothing per keystroke.
+ */
+public interface EditListener {
+
+    /**
+     * Called after removed characters at start were replaced with inserted ones
+     *
+     * @param length the length of the whole text after the edit
+     */
+    void edited(int start, int removed, int inserted, int length);
+
+    /**
+     * Called after the whole text was replaced
+     */
+    void replaced();
+}
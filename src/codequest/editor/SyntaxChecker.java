@@ -0,0 +1,175 @@
+package codequest.editor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import codequest.lang.Parser;
+import codequest.lang.SyntaxError;
+import codequest.lang.TokenBuffer;
+import javafx.application.Platform;
+
+/**
+ * SyntaxChecker - Parses the program in the background while the student types
+ * Each edit only widens a dirty span, so the typing path does no parsing and allocates
+ * nothing. Once typing pauses for DEBOUNCE_MILLIS the worker thread fetches the text from
+ * the FX thread, re-tokenizes just the dirty span, parses, and hands the errors back; at
+ * most one hand-off is queued at a time, so diagnostics arrive at most once per pulse.
+ */
+public class SyntaxChecker implements EditListener {
+
+    public static final long DEBOUNCE_MILLIS = 300;
+
+    private final Supplier<String> text;
+    private final Consumer<List<SyntaxError>> onDiagnostics;
+
+    // Pending edits, written on the FX thread and taken by the worker; guarded by lock
+    private final Object lock = new Object();
+    private boolean pending;
+    private int dirtyStart = Integer.MAX_VALUE; // first changed offset
+    private int dirtyTail = Integer.MAX_VALUE;  // unchanged characters at the end
+    private boolean fullCheck = true;
+    private long lastEditNanos;
+    private Thread worker;
+
+    // The text fetched on the FX thread with the dirty span it belongs to; guarded by lock
+    private String capturedText;
+    private int capturedStart;
+    private int capturedTail;
+    private boolean capturedFull;
+
+    // Worker state
+    private final TokenBuffer tokens = new TokenBuffer();
+    private int checkedLength = -1;
+
+    // Hand-off to the FX thread
+    private final AtomicReference<List<SyntaxError>> latest = new AtomicReference<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    /**
+     * @param text reads the current program text; only called on the FX thread
+     * @param onDiagnostics receives the current errors on the FX thread after each check
+     */
+    public SyntaxChecker(Supplier<String> text, Consumer<List<SyntaxError>> onDiagnostics) {
+        this.text = text;
+        this.onDiagnostics = onDiagnostics;
+    }
+
+    /**
+     * Record an edit that replaced removed characters at start with inserted ones
+     *
+     * @param length the length of the whole text after the edit
+     */
+    @Override
+    public void edited(int start, int removed, int inserted, int length) {
+        synchronized (lock) {
+            dirtyStart = Math.min(dirtyStart, start);
+            dirtyTail = Math.min(dirtyTail, length - (start + inserted));
+            schedule();
+        }
+    }
+
+    /**
+     * Record that the whole text was replaced
+     */
+    @Override
+    public void replaced() {
+        synchronized (lock) {
+            fullCheck = true;
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        pending = true;
+        lastEditNanos = System.nanoTime();
+        if (worker == null) {
+            worker = new Thread(this::checkLoop, "codequest-syntax-checker");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        lock.notifyAll();
+    }
+
+    private void checkLoop() {
+        while (true) {
+            String source;
+            int start;
+            int tail;
+            boolean full;
+            synchronized (lock) {
+                try {
+                    while (!pending) {
+                        lock.wait();
+                    }
+                    // Wait until typing has paused
+                    long remaining;
+                    while ((remaining = lastEditNanos + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS)
+                            - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+
+                    Platform.runLater(this::capture);
+                    while (capturedText == null) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                source = capturedText;
+                start = capturedStart;
+                tail = capturedTail;
+                full = capturedFull;
+                capturedText = null;
+            }
+
+            check(source, start, tail, full);
+        }
+    }
+
+    /**
+     * Take the text and the dirty span together, on the FX thread where edits happen
+     */
+    private void capture() {
+        String current = text.get();
+        synchronized (lock) {
+            capturedText = current == null ? "" : current;
+            capturedStart = dirtyStart;
+            capturedTail = dirtyTail;
+            capturedFull = fullCheck;
+            pending = false;
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyTail = Integer.MAX_VALUE;
+            fullCheck = false;
+            lock.notifyAll();
+        }
+    }
+
+    private void check(String text, int start, int tail, boolean full) {
+        int removed = checkedLength - tail - start;
+        int inserted = text.length() - tail - start;
+        if (full || checkedLength < 0 || removed < 0 || inserted < 0) {
+            tokens.reset(text);
+        } else {
+            tokens.update(text, start, removed, inserted);
+        }
+        checkedLength = text.length();
+
+        latest.set(Parser.parse(tokens.stream()).getErrors());
+        if (delivering.compareAndSet(false, true)) {
+            Platform.runLater(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        delivering.set(false);
+        List<SyntaxError> errors = latest.getAndSet(null);
+        if (errors != null) {
+            onDiagnostics.accept(errors);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package codequest.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * ClassFileBuilder - Just enough of the class file format for ProgramCompiler
+ * Builds one final class with a no-argument constructor and one method. The method's
+ * locals must all be initialized before the first label, so every branch target can
+ * share the same full stack map frame.
+ */
+final class ClassFileBuilder {
+
+    // Opcodes used by the compiler
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ISTORE = 0x36;
+    static final int POP = 0x57;
+    static final int IINC = 0x84;
+    static final int IFEQ = 0x99;
+    static final int IF_ICMPLT = 0xa1;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int WIDE = 0xc4;
+
+    private static final int MAX_CODE_BYTES = 65535;
+
+    private final String className;
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    ClassFileBuilder(String className) {
+        this.className = className;
+    }
+
+    /* Constant pool */
+
+    int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int integer(int value) {
+        return constant("I" + value, out -> {
+            out.writeByte(3);
+            out.writeInt(value);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant("M" + owner + "." + name + descriptor, out -> {
+            out.writeByte(10);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private interface Entry {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int constant(String key, Entry entry) {
+        Integer index = poolIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            entry.write(pool);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        poolIndex.put(key, poolCount);
+        return poolCount++;
+    }
+
+    /**
+     * A position in the code that branches can jump to
+     */
+    static final class Label {
+        private int position = -1;
+        private final List<int[]> patches = new ArrayList<>(); // {instruction start, offset position}
+    }
+
+    /**
+     * Bytecode for the single generated method
+     */
+    final class Code {
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+        private final TreeSet<Integer> frames = new TreeSet<>();
+        private final List<Label> labels = new ArrayList<>();
+
+        void op(int opcode) {
+            u1(opcode);
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(BIPUSH);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(SIPUSH);
+                u2(value);
+            } else {
+                op(LDC_W);
+                u2(integer(value));
+            }
+        }
+
+        void pushBoolean(boolean value) {
+            op(value ? ICONST_1 : ICONST_0);
+        }
+
+        void iload(int local) {
+            localOp(ILOAD, local);
+        }
+
+        void istore(int local) {
+            localOp(ISTORE, local);
+        }
+
+        void iinc(int local, int delta) {
+            if (local > 255) {
+                op(WIDE);
+                op(IINC);
+                u2(local);
+                u2(delta);
+            } else {
+                op(IINC);
+                u1(local);
+                u1(delta);
+            }
+        }
+
+        void invokeVirtual(String owner, String name, String descriptor) {
+            op(INVOKEVIRTUAL);
+            u2(methodRef(owner, name, descriptor));
+        }
+
+        void branch(int opcode, Label target) {
+            int start = length;
+            op(opcode);
+            target.patches.add(new int[] {start, length});
+            u2(0);
+            if (!labels.contains(target)) {
+                labels.add(target);
+            }
+        }
+
+        /**
+         * Place a label at the current position; it gets a stack map frame
+         */
+        void mark(Label label) {
+            label.position = length;
+            frames.add(length);
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+        }
+
+        int size() {
+            return length;
+        }
+
+        private void localOp(int opcode, int local) {
+            if (local > 255) {
+                op(WIDE);
+                op(opcode);
+                u2(local);
+            } else {
+                op(opcode);
+                u1(local);
+            }
+        }
+
+        private void u1(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        private byte[] resolve() {
+            if (length > MAX_CODE_BYTES) {
+                throw new IllegalStateException("Method too large: " + length + " bytes");
+            }
+            for (Label label : labels) {
+                for (int[] patch : label.patches) {
+                    int offset = label.position - patch[0];
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new IllegalStateException("Branch too far");
+                    }
+                    bytes[patch[1]] = (byte) (offset >> 8);
+                    bytes[patch[1] + 1] = (byte) offset;
+                }
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    Code newCode() {
+        return new Code();
+    }
+
+    /**
+     * Assemble the class file
+     *
+     * @param interfaceName interface the class implements
+     * @param methodName name of the generated method
+     * @param descriptor descriptor of the generated method
+     * @param code body of the generated method
+     * @param argumentType internal name of the method's single reference argument
+     * @param intLocals number of int locals following this and the argument
+     */
+    byte[] build(String interfaceName, String methodName, String descriptor, Code code,
+                 String argumentType, int intLocals) {
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+        int interfaceIndex = classRef(interfaceName);
+        int argumentClass = classRef(argumentType);
+        int codeName = utf8("Code");
+        int stackMapName = utf8("StackMapTable");
+        int initName = utf8("<init>");
+        int initDescriptor = utf8("()V");
+        int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+        int methodNameIndex = utf8(methodName);
+        int descriptorIndex = utf8(descriptor);
+        byte[] body = code.resolve();
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61); // Java 17
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(interfaceIndex);
+            out.writeShort(0); // no fields
+            out.writeShort(2); // methods
+
+            // public <init>() { super(); }
+            out.writeShort(0x0001);
+            out.writeShort(initName);
+            out.writeShort(initDescriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(2 + 2 + 4 + 5 + 2 + 2);
+            out.writeShort(1); // max stack
+            out.writeShort(1); // max locals
+            out.writeInt(5);
+            out.writeByte(ALOAD_0);
+            out.writeByte(INVOKESPECIAL);
+            out.writeShort(objectInit);
+            out.writeByte(RETURN);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            // The generated method
+            byte[] stackMap = stackMap(code, thisClass, argumentClass, intLocals);
+            out.writeShort(0x0001);
+            out.writeShort(methodNameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            int attributes = stackMap.length > 0 ? 1 : 0;
+            out.writeInt(2 + 2 + 4 + body.length + 2 + 2 + (attributes > 0 ? 6 + stackMap.length : 0));
+            out.writeShort(4); // max stack
+            out.writeShort(2 + intLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // no exception handlers
+            out.writeShort(attributes);
+            if (attributes > 0) {
+                out.writeShort(stackMapName);
+                out.writeInt(stackMap.length);
+                out.write(stackMap);
+            }
+
+            out.writeShort(0); // no class attributes
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] stackMap(Code code, int thisClass, int argumentClass, int intLocals) throws IOException {
+        if (code.frames.isEmpty()) {
+            return new byte[0];
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(code.frames.size());
+
+        int previous = -1;
+        for (int offset : code.frames) {
+            out.writeByte(255); // full_frame
+            out.writeShort(previous < 0 ? offset : offset - previous - 1);
+            out.writeShort(2 + intLocals);
+            out.writeByte(7); // Object_variable_info: this
+            out.writeShort(thisClass);
+            out.writeByte(7); // the argument
+            out.writeShort(argumentClass);
+            for (int i = 0; i < intLocals; i++) {
+                out.writeByte(1); // Integer_variable_info
+            }
+            out.writeShort(0); // empty stack
+            previous = offset;
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,12 @@
+package codequest.engine;
+
+/**
+ * CompiledProgram - A student program compiled to JVM bytecode by ProgramCompiler
+ */
+public interface CompiledProgram {
+
+    /**
+     * Run the program, performing every action through the given runtime
+     */
+    void run(ProgramRuntime runtime);
+}
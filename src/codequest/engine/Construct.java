@@ -0,0 +1,12 @@
+package codequest.engine;
+
+/**
+ * Construct - The parts of the language a level can ask a program to use
+ * Each is recorded by ProgramRuntime when a command uses it.
+ */
+public enum Construct {
+    VARIABLE,    // setSpeed() was given a defined variable
+    CONDITIONAL, // moveBack() ran inside an if (enemyNear) block that was taken
+    ENEMY_CHECK, // the same moveBack(), counted as dealing with the enemy
+    LOOP         // shoot() ran inside a for loop
+}
@@ -0,0 +1,237 @@
+package codequest.engine;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * EntityStore - The goal, targets, obstacles and enemies of a level, as parallel arrays
+ * Each entity has a stable int id, its index in every array. Kinds, positions, sizes and
+ * flags sit in their own primitive arrays, so the checks that scan every entity of a kind
+ * (which target a shot hits, whether the sprite stands on an obstacle, how many targets
+ * are hit) walk straight through memory instead of chasing objects.
+ *
+ * Every change marks its entity dirty, and drainDirty() hands the dirty ids to a view,
+ * which then only redraws what changed. A store is not thread-safe; the World's store is
+ * only touched by the thread running the program, and the scene keeps a copy of its own.
+ */
+public final class EntityStore {
+
+    public enum Kind {
+        GOAL,
+        TARGET,
+        OBSTACLE,
+        ENEMY
+    }
+
+    // Flag bits
+    public static final int HIT = 1;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private int size = 0;
+    private byte[] kinds = new byte[8];
+    private double[] xs = new double[8];
+    private double[] ys = new double[8];
+    private double[] widths = new double[8];
+    private double[] heights = new double[8];
+    private int[] flags = new int[8];
+
+    // Ids changed since the last drainDirty(), each listed once
+    private int[] dirty = new int[8];
+    private int dirtyCount = 0;
+    private boolean[] isDirty = new boolean[8];
+
+    public EntityStore() {
+    }
+
+    /**
+     * Create a copy of a store, with every entity dirty so a new view draws all of them
+     */
+    public EntityStore(EntityStore other) {
+        size = other.size;
+        kinds = other.kinds.clone();
+        xs = other.xs.clone();
+        ys = other.ys.clone();
+        widths = other.widths.clone();
+        heights = other.heights.clone();
+        flags = other.flags.clone();
+        dirty = new int[kinds.length];
+        isDirty = new boolean[kinds.length];
+        for (int id = 0; id < size; id++) {
+            markDirty(id);
+        }
+    }
+
+    /**
+     * Add an entity and return its id
+     */
+    public int add(Kind kind, double x, double y, double width, double height) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+            isDirty = Arrays.copyOf(isDirty, capacity);
+        }
+        int id = size++;
+        kinds[id] = (byte) kind.ordinal();
+        xs[id] = x;
+        ys[id] = y;
+        widths[id] = width;
+        heights[id] = height;
+        flags[id] = 0;
+        markDirty(id);
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Kind getKind(int id) {
+        return KINDS[kinds[id]];
+    }
+
+    public double getX(int id) {
+        return xs[id];
+    }
+
+    public double getY(int id) {
+        return ys[id];
+    }
+
+    public double getWidth(int id) {
+        return widths[id];
+    }
+
+    public double getHeight(int id) {
+        return heights[id];
+    }
+
+    public boolean hasFlag(int id, int flag) {
+        return (flags[id] & flag) != 0;
+    }
+
+    public void setFlag(int id, int flag, boolean on) {
+        int updated = on ? flags[id] | flag : flags[id] & ~flag;
+        if (updated != flags[id]) {
+            flags[id] = updated;
+            markDirty(id);
+        }
+    }
+
+    public void moveTo(int id, double x, double y) {
+        if (xs[id] != x || ys[id] != y) {
+            xs[id] = x;
+            ys[id] = y;
+            markDirty(id);
+        }
+    }
+
+    /**
+     * Take on the positions and flags of another store of the same level
+     * Only the entities that differ are marked dirty.
+     */
+    public void copyStateFrom(EntityStore other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Stores hold " + size + " and " + other.size + " entities");
+        }
+        for (int id = 0; id < size; id++) {
+            moveTo(id, other.xs[id], other.ys[id]);
+            if (flags[id] != other.flags[id]) {
+                flags[id] = other.flags[id];
+                markDirty(id);
+            }
+        }
+    }
+
+    /**
+     * Get the id of the first entity of a kind, or -1 if there is none
+     */
+    public int first(Kind kind) {
+        byte wanted = (byte) kind.ordinal();
+        for (int id = 0; id < size; id++) {
+            if (kinds[id] == wanted) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the entity of a kind without a flag whose x is closest to the given x
+     *
+     * @return its id, or -1 if there is none closer than range
+     */
+    public int findNearest(Kind kind, int withoutFlag, double x, double range) {
+        byte wanted = (byte) kind.ordinal();
+        int nearest = -1;
+        double minDistance = range;
+        for (int id = 0; id < size; id++) {
+            if (kinds[id] == wanted && (flags[id] & withoutFlag) == 0) {
+                double distance = Math.abs(xs[id] - x);
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearest = id;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Find the first entity of a kind whose x is within radius of the given x
+     *
+     * @return its id, or -1 if there is none
+     */
+    public int findWithin(Kind kind, double x, double radius) {
+        byte wanted = (byte) kind.ordinal();
+        for (int id = 0; id < size; id++) {
+            if (kinds[id] == wanted && Math.abs(x - xs[id]) < radius) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Count the entities of a kind, or only those with a flag when flag is not 0
+     */
+    public int count(Kind kind, int flag) {
+        byte wanted = (byte) kind.ordinal();
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            if (kinds[id] == wanted && (flag == 0 || (flags[id] & flag) != 0)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Hand every id changed since the last call to the consumer, and clear them
+     *
+     * @return the number of ids handed over
+     */
+    public int drainDirty(IntConsumer consumer) {
+        int drained = dirtyCount;
+        for (int i = 0; i < drained; i++) {
+            int id = dirty[i];
+            isDirty[id] = false;
+            consumer.accept(id);
+        }
+        dirtyCount = 0;
+        return drained;
+    }
+
+    private void markDirty(int id) {
+        if (!isDirty[id]) {
+            isDirty[id] = true;
+            dirty[dirtyCount++] = id;
+        }
+    }
+}
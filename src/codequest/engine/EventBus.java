@@ -0,0 +1,156 @@
+package codequest.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * EventBus - A single-producer, multi-consumer ring of GameEvents
+ * The ring's slots are allocated up front and reused, so publishing creates no garbage.
+ * The producer writes a slot and then advances the cursor; each Subscription reads up
+ * to the cursor at its own pace and then advances its own sequence. The producer only
+ * waits when it is a whole ring ahead of the slowest subscription, and no locks are
+ * taken on either side.
+ *
+ * Only one thread may publish at a time.
+ */
+public final class EventBus {
+
+    private final GameEvent[] ring;
+    private final int mask;
+
+    // Sequence of the last published event
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private final AtomicReference<Subscription[]> subscriptions = new AtomicReference<>(new Subscription[0]);
+
+    // Producer state
+    private long next = 0;
+    private long slowest = -1; // the slowest subscription's sequence when last checked
+
+    /**
+     * @param capacity number of slots; must be a power of two
+     */
+    public EventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        ring = new GameEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new GameEvent();
+        }
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * Publish an event, waiting while the slowest subscription is a whole ring behind
+     */
+    public void publish(GameEvent.Type type, double x, int value, String text) {
+        long sequence = next;
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint > slowest) {
+            int idle = 0;
+            while (wrapPoint > (slowest = slowestSequence())) {
+                idle = backOff(idle);
+            }
+        }
+
+        ring[(int) sequence & mask].set(type, x, value, text);
+        cursor.lazySet(sequence);
+        next = sequence + 1;
+    }
+
+    /**
+     * Start receiving every event published from now on
+     * A subscription holds the producer back once it falls a ring behind, so one that is
+     * no longer polled must be unsubscribed.
+     */
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription(cursor.get());
+        Subscription[] current;
+        Subscription[] updated;
+        do {
+            current = subscriptions.get();
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+        } while (!subscriptions.compareAndSet(current, updated));
+
+        // The producer may have moved on before it could see this subscription
+        subscription.sequence.set(cursor.get());
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        Subscription[] current;
+        Subscription[] updated;
+        do {
+            current = subscriptions.get();
+            int index = Arrays.asList(current).indexOf(subscription);
+            if (index < 0) {
+                return;
+            }
+            updated = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        } while (!subscriptions.compareAndSet(current, updated));
+    }
+
+    private long slowestSequence() {
+        long slowestSequence = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions.get()) {
+            slowestSequence = Math.min(slowestSequence, subscription.sequence.get());
+        }
+        return slowestSequence == Long.MAX_VALUE ? cursor.get() : slowestSequence;
+    }
+
+    /**
+     * Spin briefly, then yield, then sleep in naps that grow while there is nothing to do
+     */
+    private static int backOff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else if (idle < 1000) {
+            LockSupport.parkNanos(100_000);
+        } else {
+            LockSupport.parkNanos(5_000_000);
+        }
+        return Math.min(idle + 1, 1000);
+    }
+
+    /**
+     * One consumer's position in the stream
+     */
+    public final class Subscription {
+
+        // Sequence of the last event this subscription has handled
+        private final AtomicLong sequence;
+
+        private Subscription(long start) {
+            sequence = new AtomicLong(start);
+        }
+
+        /**
+         * Hand up to max waiting events to the handler, oldest first
+         *
+         * @return the number of events handled
+         */
+        public int poll(Consumer<GameEvent> handler, int max) {
+            long first = sequence.get() + 1;
+            long last = Math.min(cursor.get(), first + max - 1);
+            for (long s = first; s <= last; s++) {
+                handler.accept(ring[(int) s & mask]);
+                // Free each slot as soon as it is handled, so a blocked producer can go on
+                sequence.lazySet(s);
+            }
+            return (int) Math.max(0, last - first + 1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package codequest.engine;
+
+/**
+ * EventPublisher - Turns the Interpreter's callbacks into events on an EventBus
+ * Every event carries the sprite's position at the time, so consumers draw from the
+ * event and never read the World while the program is still changing it.
+ */
+public class EventPublisher implements ExecutionListener {
+
+    private final EventBus bus;
+    private final World world;
+
+    public EventPublisher(EventBus bus, World world) {
+        this.bus = bus;
+        this.world = world;
+    }
+
+    @Override
+    public void onOutput(String text) {
+        publish(GameEvent.Type.OUTPUT, 0, text);
+    }
+
+    @Override
+    public void onMoved(String command) {
+        publish(GameEvent.Type.MOVED, 0, command);
+    }
+
+    @Override
+    public void onJumped() {
+        publish(GameEvent.Type.JUMPED, 0, null);
+    }
+
+    @Override
+    public void onShot(int targetIndex) {
+        publish(GameEvent.Type.SHOT, targetIndex, null);
+    }
+
+    @Override
+    public void onSpeedChanged(int speed) {
+        publish(GameEvent.Type.SPEED_CHANGED, speed, null);
+    }
+
+    @Override
+    public void onRestored(int skippedStatements) {
+        publish(GameEvent.Type.RESTORED, skippedStatements, null);
+    }
+
+    /**
+     * Mark the end of the run, after LEVEL_COMPLETED if the World's win condition holds
+     */
+    public void finished() {
+        if (world.isComplete()) {
+            publish(GameEvent.Type.LEVEL_COMPLETED, 0, null);
+        }
+        publish(GameEvent.Type.RUN_FINISHED, 0, null);
+    }
+
+    private void publish(GameEvent.Type type, int value, String text) {
+        bus.publish(type, world.getSprite().getXPos(), value, text);
+    }
+}
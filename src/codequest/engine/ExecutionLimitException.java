@@ -0,0 +1,13 @@
+package codequest.engine;
+
+/**
+ * ExecutionLimitException - Thrown when a program runs more statements than allowed
+ */
+public class ExecutionLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExecutionLimitException(long limit) {
+        super("Program stopped after " + limit + " steps");
+    }
+}
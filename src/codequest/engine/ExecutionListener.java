@@ -0,0 +1,39 @@
+package codequest.engine;
+
+/**
+ * ExecutionListener - Callbacks from the Interpreter as a program changes the World
+ * Each callback runs after the World has already been updated.
+ */
+public interface ExecutionListener {
+
+    /**
+     * A line of run output, as the levels print it
+     */
+    default void onOutput(String text) {
+    }
+
+    /**
+     * The sprite's X position changed through moveLeft, moveRight or moveBack
+     */
+    default void onMoved(String command) {
+    }
+
+    default void onJumped() {
+    }
+
+    /**
+     * A shot was fired; targetIndex is the target it hit, or -1 for a miss
+     */
+    default void onShot(int targetIndex) {
+    }
+
+    default void onSpeedChanged(int speed) {
+    }
+
+    /**
+     * The World jumped to a saved state instead of running the first skippedStatements
+     * top-level statements, so anything drawn from callbacks should be refreshed from it
+     */
+    default void onRestored(int skippedStatements) {
+    }
+}
@@ -0,0 +1,97 @@
+package codequest.engine;
+
+import java.util.Arrays;
+
+import codequest.lang.Command;
+
+/**
+ * ExecutionProfile - What a run of a program cost, counted by the Interpreter as it goes
+ * Counts statements, loop iterations and the commands that acted on the sprite, and how
+ * many statements started on each source line, so a student can see which lines their
+ * program spends its time on. Profile a parsed program rather than an optimized one: the
+ * optimizer folds several statements into one, and they are then counted on its line.
+ */
+public final class ExecutionProfile {
+
+    private long statements;
+    private long loopIterations;
+    private final long[] actions = new long[Command.values().length];
+    private long[] lineCounts = new long[16]; // indexed by 0-based line
+    private long startTick = -1;
+    private long ticks;
+
+    /**
+     * Count statements starting on a 1-based line; lines below 1 count only in the total
+     */
+    void countStatements(int line, long count) {
+        statements += count;
+        if (line < 1) {
+            return;
+        }
+        if (line > lineCounts.length) {
+            lineCounts = Arrays.copyOf(lineCounts, Math.max(line, lineCounts.length * 2));
+        }
+        lineCounts[line - 1] += count;
+    }
+
+    void countIteration() {
+        loopIterations++;
+    }
+
+    void countActions(Command command, long count) {
+        actions[command.ordinal()] += count;
+    }
+
+    /**
+     * Note the World's tick before and after the run; called twice
+     */
+    void markTime(World world) {
+        long tick = world.getClock().getTick();
+        if (startTick < 0) {
+            startTick = tick;
+        } else {
+            ticks = tick - startTick;
+        }
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getLoopIterations() {
+        return loopIterations;
+    }
+
+    /**
+     * Get how many commands acted on the sprite, of any kind
+     */
+    public long getActions() {
+        long total = 0;
+        for (long count : actions) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getActions(Command command) {
+        return actions[command.ordinal()];
+    }
+
+    /**
+     * Get how long the run took in the World's time, in ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get how many statements started on each line, indexed by 0-based line
+     */
+    public long[] getLineCounts() {
+        int length = lineCounts.length;
+        while (length > 0 && lineCounts[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(lineCounts, length);
+    }
+}
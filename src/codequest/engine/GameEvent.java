@@ -0,0 +1,51 @@
+package codequest.engine;
+
+/**
+ * GameEvent - One slot of the EventBus ring
+ * Slots are allocated once and overwritten as the ring wraps, so a consumer must copy
+ * what it needs before its handler returns and never keep the event itself.
+ */
+public final class GameEvent {
+
+    public enum Type {
+        OUTPUT,          // text is a line of run output
+        MOVED,           // text is the command, x the sprite's new position
+        JUMPED,
+        SHOT,            // value is the target hit, or -1 for a miss
+        SPEED_CHANGED,   // value is the new speed
+        RESTORED,        // value is the number of statements skipped
+        LEVEL_COMPLETED,
+        RUN_FINISHED
+    }
+
+    private Type type;
+    private double x;
+    private int value;
+    private String text;
+
+    GameEvent() {
+    }
+
+    void set(Type type, double x, int value, String text) {
+        this.type = type;
+        this.x = x;
+        this.value = value;
+        this.text = text;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,185 @@
+package codequest.engine;
+
+import codequest.lang.Command;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+/**
+ * GeneratedLevel - A free roam style level laid out from a seed, with a program that solves it
+ * The same seed and sizes always give the same obstacles, targets, enemies and solution,
+ * so benchmarks and stress tests can measure how interpreting, collision checks and
+ * rendering scale from a handful of entities to hundreds of thousands, on inputs anyone
+ * can reproduce. Like level 5, targets are hit by the nearest shot, obstacles only count
+ * where the sprite ends, and the goal spans the right end of the level.
+ */
+public final class GeneratedLevel {
+
+    // Level id of generated worlds, which no built-in level uses
+    public static final int LEVEL_ID = 0;
+
+    private static final double GOAL_WIDTH = 100;
+    private static final double OBSTACLE_Y = 200;
+    private static final double OBSTACLE_WIDTH = 30;
+    private static final double OBSTACLE_HEIGHT = 100;
+    private static final double TARGET_SIZE = 25;
+    private static final double ENEMY_SIZE = 40;
+
+    // Speeds the solution walks at: fast for distance, then one column (10 pixels) at a time
+    private static final int FAST_SPEED = SpriteModel.MAX_SPEED;
+    private static final int SLOW_SPEED = 1;
+
+    private final long seed;
+    private final double maxX;
+    private final double[] obstacleXs;
+    private final double[] targetXs;
+    private final double[] targetYs;
+    private final double[] enemyXs;
+    private final String solution;
+
+    private GeneratedLevel(long seed, double maxX, double[] obstacleXs, double[] targetXs, double[] targetYs,
+                           double[] enemyXs) {
+        this.seed = seed;
+        this.maxX = maxX;
+        this.obstacleXs = obstacleXs;
+        this.targetXs = targetXs;
+        this.targetYs = targetYs;
+        this.enemyXs = enemyXs;
+        this.solution = solve();
+    }
+
+    /**
+     * Lay out a level
+     *
+     * @param maxX the rightmost x the sprite can reach; World.DEFAULT_MAX_X fits the window
+     */
+    public static GeneratedLevel generate(long seed, int obstacles, int targets, int enemies, double maxX) {
+        if (obstacles < 0 || targets < 0 || enemies < 0) {
+            throw new IllegalArgumentException("Entity counts cannot be negative");
+        }
+        double start = SpriteModel.START_X;
+        if (maxX < start + 500) {
+            throw new IllegalArgumentException("Level is too narrow: " + maxX);
+        }
+
+        Random random = new Random(seed);
+        // Obstacles and enemies stay clear of the start and of the goal, where the sprite ends
+        double[] obstacleXs = new double[obstacles];
+        for (int i = 0; i < obstacles; i++) {
+            obstacleXs[i] = Math.floor(start + 100 + random.nextDouble() * (maxX - start - 300));
+        }
+        double[] targetXs = new double[targets];
+        double[] targetYs = new double[targets];
+        for (int i = 0; i < targets; i++) {
+            targetXs[i] = Math.floor(start + random.nextDouble() * (maxX - start - 150));
+            targetYs[i] = 80 + random.nextInt(221);
+        }
+        double[] enemyXs = new double[enemies];
+        for (int i = 0; i < enemies; i++) {
+            enemyXs[i] = Math.floor(start + 100 + random.nextDouble() * (maxX - start - 300));
+        }
+        return new GeneratedLevel(seed, maxX, obstacleXs, targetXs, targetYs, enemyXs);
+    }
+
+    /**
+     * Create a fresh world for the level
+     */
+    public World createWorld() {
+        World world = new World(LEVEL_ID, EnumSet.allOf(Command.class));
+        world.setMaxX(maxX);
+        world.setObstacles(obstacleXs, OBSTACLE_Y, OBSTACLE_WIDTH, OBSTACLE_HEIGHT);
+        world.setTargets(targetXs, targetYs, TARGET_SIZE, World.Targeting.NEAREST);
+        for (double x : enemyXs) {
+            world.addEnemy(x, OBSTACLE_Y, ENEMY_SIZE);
+        }
+        world.setGoal(maxX - GOAL_WIDTH, OBSTACLE_Y, GOAL_WIDTH, 80, false);
+        world.setWinCondition(WinCondition.allOf(WinCondition.allTargetsHit(), WinCondition.inGoal()));
+        return world;
+    }
+
+    /**
+     * Get a program that hits every target and ends in the goal
+     */
+    public String getSolution() {
+        return solution;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the number of obstacles, targets and enemies together
+     */
+    public int getEntityCount() {
+        return obstacleXs.length + targetXs.length + enemyXs.length;
+    }
+
+    public int getTargetCount() {
+        return targetXs.length;
+    }
+
+    /**
+     * Walk right from target to target, stopping where each stop covers as many as it can
+     * Every stop is a whole number of columns from the start, just within range of the
+     * leftmost target not yet hit, and fires one shot per target in range: a nearest shot
+     * always hits one of them while any are left. The sprite then runs into the wall at
+     * maxX, inside the goal and clear of every obstacle.
+     */
+    private String solve() {
+        double range = createWorld().getTargetRange();
+        double[] sorted = targetXs.clone();
+        Arrays.sort(sorted);
+
+        StringBuilder program = new StringBuilder("// Generated solution, seed ").append(seed).append('\n');
+        int speed = SpriteModel.DEFAULT_SPEED;
+        double x = SpriteModel.START_X;
+        int next = 0; // first target not hit yet
+        while (next < sorted.length) {
+            double stop = Math.min(sorted[next] + range - 10, maxX);
+            stop = x + Math.floor((stop - x) / 10) * 10;
+
+            double distance = stop - x;
+            int fastMoves = (int) (distance / (FAST_SPEED * 10));
+            int slowMoves = (int) ((distance - fastMoves * FAST_SPEED * 10) / (SLOW_SPEED * 10));
+            speed = appendMoves(program, speed, FAST_SPEED, fastMoves);
+            speed = appendMoves(program, speed, SLOW_SPEED, slowMoves);
+            x = stop;
+
+            int inRange = 0;
+            while (next + inRange < sorted.length && Math.abs(sorted[next + inRange] - x) < range) {
+                inRange++;
+            }
+            appendLoop(program, "shoot", inRange);
+            next += inRange;
+        }
+
+        int toWall = (int) Math.ceil((maxX - x) / (FAST_SPEED * 10));
+        appendMoves(program, speed, FAST_SPEED, toWall);
+        return program.toString();
+    }
+
+    private static int appendMoves(StringBuilder program, int speed, int newSpeed, int moves) {
+        if (moves == 0) {
+            return speed;
+        }
+        if (speed != newSpeed) {
+            program.append("setSpeed(").append(newSpeed).append(");\n");
+        }
+        appendLoop(program, "moveRight", moves);
+        return newSpeed;
+    }
+
+    private static void appendLoop(StringBuilder program, String command, int times) {
+        if (times == 1) {
+            program.append(command).append("();\n");
+        } else if (times > 1) {
+            program.append("for (int i = 0; i < ").append(times).append("; i++) {\n    ")
+                .append(command).append("();\n}\n");
+        }
+    }
+}
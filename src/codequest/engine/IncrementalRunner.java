@@ -0,0 +1,145 @@
+package codequest.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import codequest.lang.Program;
+import codequest.lang.ProgramHash;
+import codequest.lang.Statement;
+
+/**
+ * IncrementalRunner - Re-runs an edited program from the first statement that changed
+ * After each top-level statement the World and the variable frame are saved under a hash
+ * of the starting state plus every statement so far. The next run restores the checkpoint
+ * of the longest prefix that hashes the same and only executes what follows it, so an
+ * edit near the end of a long program re-runs just the end.
+ */
+public class IncrementalRunner {
+
+    // Checkpoints kept per program; longer programs save one every few statements
+    private static final int MAX_CHECKPOINTS = 512;
+
+    private final long stepLimit;
+    private Map<String, Checkpoint> checkpoints = new HashMap<>();
+    private WorldHistory history;
+
+    public IncrementalRunner() {
+        this(Interpreter.DEFAULT_STEP_LIMIT);
+    }
+
+    public IncrementalRunner(long stepLimit) {
+        this.stepLimit = stepLimit;
+    }
+
+    /**
+     * Record each run's statements into a history, which is cleared as every run starts
+     * Statements skipped by resuming from a checkpoint are not recorded.
+     */
+    public void setHistory(WorldHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Run a program against the world, resuming from a checkpoint where possible
+     * Returns how many top-level statements were skipped.
+     */
+    public int run(World world, ExecutionListener listener, Program program) {
+        List<Statement> statements = program.getStatements();
+        String[] keys = prefixKeys(world, statements);
+
+        Interpreter interpreter = new Interpreter(world, listener, stepLimit);
+        interpreter.start(program);
+        if (history != null) {
+            history.clear();
+            interpreter.setHistory(history);
+        }
+
+        int resume = 0;
+        for (int i = statements.size(); i > 0; i--) {
+            Checkpoint checkpoint = checkpoints.get(keys[i]);
+            if (checkpoint != null) {
+                world.restoreState(checkpoint.state);
+                interpreter.restore(checkpoint.values, checkpoint.defined, checkpoint.steps);
+                resume = i;
+                break;
+            }
+        }
+        if (resume > 0 && listener != null) {
+            listener.onRestored(resume);
+        }
+
+        // Keep the checkpoints this program still agrees with and replace the rest
+        Map<String, Checkpoint> kept = new HashMap<>();
+        for (int i = 1; i <= resume; i++) {
+            Checkpoint checkpoint = checkpoints.get(keys[i]);
+            if (checkpoint != null) {
+                kept.put(keys[i], checkpoint);
+            }
+        }
+        checkpoints = kept;
+
+        int stride = Math.max(1, (statements.size() + MAX_CHECKPOINTS - 1) / MAX_CHECKPOINTS);
+        try {
+            for (int i = resume; i < statements.size(); i++) {
+                interpreter.execute(statements.get(i));
+                if ((i + 1) % stride == 0 || i + 1 == statements.size()) {
+                    checkpoints.put(keys[i + 1], new Checkpoint(world.saveState(),
+                        interpreter.copyValues(), interpreter.copyDefined(), interpreter.getSteps()));
+                }
+            }
+        } finally {
+            interpreter.finish();
+        }
+        return resume;
+    }
+
+    /**
+     * Forget every checkpoint
+     */
+    public void clear() {
+        checkpoints.clear();
+    }
+
+    /**
+     * Hash the starting state, then chain in each statement: keys[i] covers the first i
+     */
+    private static String[] prefixKeys(World world, List<Statement> statements) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        String[] keys = new String[statements.size() + 1];
+        keys[0] = hash(digest, "level " + world.getLevelId() + ":" + world.saveState().describe());
+        for (int i = 0; i < statements.size(); i++) {
+            keys[i + 1] = hash(digest, keys[i] + ProgramHash.canonical(statements.get(i)));
+        }
+        return keys;
+    }
+
+    private static String hash(MessageDigest digest, String text) {
+        return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static final class Checkpoint {
+        final World.State state;
+        final int[] values;
+        final boolean[] defined;
+        final long steps;
+
+        Checkpoint(World.State state, int[] values, boolean[] defined, long steps) {
+            this.state = state;
+            this.values = values;
+            this.defined = defined;
+            this.steps = steps;
+        }
+    }
+}
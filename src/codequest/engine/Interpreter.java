@@ -0,0 +1,454 @@
+package codequest.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import codequest.lang.AssignStatement;
+import codequest.lang.Command;
+import codequest.lang.CommandStatement;
+import codequest.lang.Expression;
+import codequest.lang.ForStatement;
+import codequest.lang.IfStatement;
+import codequest.lang.MotionStatement;
+import codequest.lang.Program;
+import codequest.lang.RepeatStatement;
+import codequest.lang.Statement;
+import codequest.lang.StatementVisitor;
+import codequest.lang.SyntaxError;
+
+/**
+ * Interpreter - Runs a parsed program against a headless World
+ * Variables live in an int frame indexed by the slots the parser assigned, and every
+ * action goes through a ProgramRuntime. Output lines match what the levels print;
+ * pass a null listener to run silently.
+ */
+public class Interpreter implements StatementVisitor<Void> {
+
+    public static final long DEFAULT_STEP_LIMIT = 10_000_000L;
+
+    // One handler per command, indexed by ordinal, so a call is dispatched without its name
+    private static final MethodHandle[] HANDLERS = findHandlers();
+
+    private final World world;
+    private final ExecutionListener listener;
+    private final ProgramRuntime runtime;
+
+    // Variable frame for the program being run
+    private int[] values = new int[0];
+    private boolean[] defined = new boolean[0];
+
+    // Records the state before each statement when set
+    private WorldHistory history;
+
+    // Counts what the run costs when set
+    private ExecutionProfile profile;
+
+    private int loopDepth = 0;
+    private int enemyCheckDepth = 0;
+
+    public Interpreter(World world, ExecutionListener listener) {
+        this(world, listener, DEFAULT_STEP_LIMIT);
+    }
+
+    public Interpreter(World world, ExecutionListener listener, long stepLimit) {
+        this.world = world;
+        this.listener = listener;
+        this.runtime = new ProgramRuntime(world, listener, stepLimit);
+    }
+
+    /**
+     * Record a WorldSnapshot before every statement this interpreter runs
+     */
+    public void setHistory(WorldHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Count statements, loop iterations and actions into a profile as the program runs
+     */
+    public void setProfile(ExecutionProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Stop with a RunDecidedException once the rest of the program cannot change the outcome
+     */
+    public void setStopWhenDecided(boolean stopWhenDecided) {
+        runtime.setStopWhenDecided(stopWhenDecided);
+    }
+
+    /**
+     * Run every statement of the program in order
+     */
+    public void run(Program program) {
+        start(program);
+        try {
+            runBlock(program.getStatements());
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Set up a fresh frame for the program and report its syntax errors
+     */
+    void start(Program program) {
+        values = new int[program.getSlotCount()];
+        defined = new boolean[program.getSlotCount()];
+        if (profile != null) {
+            profile.markTime(world);
+        }
+
+        for (SyntaxError error : program.getErrors()) {
+            log(error.toString());
+        }
+    }
+
+    /**
+     * Run one top-level statement of the program passed to start()
+     */
+    void execute(Statement statement) {
+        record(statement.getLine());
+        runtime.step();
+        if (profile != null) {
+            profile.countStatements(statement.getLine(), 1);
+        }
+        statement.accept(this);
+    }
+
+    /**
+     * Record the state the program ended in
+     */
+    void finish() {
+        record(-1);
+        if (profile != null) {
+            profile.markTime(world);
+        }
+    }
+
+    private void record(int line) {
+        if (history != null) {
+            history.record(world, line, runtime.getSteps(), values, defined);
+        }
+    }
+
+    int[] copyValues() {
+        return values.clone();
+    }
+
+    boolean[] copyDefined() {
+        return defined.clone();
+    }
+
+    /**
+     * Resume from a saved frame and step count; the frame may be shorter than the current one
+     */
+    void restore(int[] savedValues, boolean[] savedDefined, long steps) {
+        int length = Math.min(savedValues.length, values.length);
+        System.arraycopy(savedValues, 0, values, 0, length);
+        System.arraycopy(savedDefined, 0, defined, 0, length);
+        runtime.restoreSteps(steps);
+    }
+
+    /**
+     * Get how many statements have been executed so far
+     */
+    public long getSteps() {
+        return runtime.getSteps();
+    }
+
+    private void runBlock(Iterable<Statement> statements) {
+        for (Statement statement : statements) {
+            record(statement.getLine());
+            runtime.step();
+            if (profile != null) {
+                profile.countStatements(statement.getLine(), 1);
+            }
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitCommand(CommandStatement statement) {
+        Command command = statement.getCommand();
+        if (!world.isCommandAllowed(command)) {
+            log("Unrecognized command: " + statement.getName() + "()");
+            return null;
+        }
+        if (profile != null) {
+            profile.countActions(command, 1);
+        }
+
+        try {
+            HANDLERS[command.ordinal()].invokeExact(this, statement);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return null;
+    }
+
+    /**
+     * Find the handler method of each command, indexed by ordinal
+     */
+    private static MethodHandle[] findHandlers() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.methodType(void.class, CommandStatement.class);
+        Command[] commands = Command.values();
+        MethodHandle[] handlers = new MethodHandle[commands.length];
+        try {
+            for (Command command : commands) {
+                String method = "execute" + Character.toUpperCase(command.getName().charAt(0))
+                    + command.getName().substring(1);
+                handlers[command.ordinal()] = lookup.findVirtual(Interpreter.class, method, type);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        return handlers;
+    }
+
+    private void executeMoveLeft(CommandStatement statement) {
+        log("Executing: moveLeft()");
+        runtime.moveLeft();
+    }
+
+    private void executeMoveRight(CommandStatement statement) {
+        log("Executing: moveRight()");
+        runtime.moveRight();
+    }
+
+    private void executeJump(CommandStatement statement) {
+        log("Executing: jump()");
+        runtime.jump();
+    }
+
+    private void executeMoveBack(CommandStatement statement) {
+        log("Executing: moveBack()");
+        runtime.moveBack(enemyCheckDepth > 0);
+    }
+
+    private void executeShoot(CommandStatement statement) {
+        executeShoot();
+    }
+
+    private void executeSetSpeed(CommandStatement statement) {
+        executeSetSpeed(statement.getArgument());
+    }
+
+    private void executeShoot() {
+        log("Executing: shoot()");
+
+        int hit = runtime.shoot(loopDepth > 0);
+        if (listener != null) {
+            if (hit >= 0) {
+                log("Target " + world.getTargetsHit() + " hit!");
+            } else {
+                log("No more targets to hit!");
+            }
+        }
+    }
+
+    private void executeSetSpeed(Expression argument) {
+        if (argument == null) {
+            log("Error: setSpeed needs a value");
+        } else if (argument.isLiteral()) {
+            int speed = argument.getValue();
+            if (listener != null) {
+                log("Set speed to " + speed);
+            }
+            runtime.setSpeed(speed, false);
+        } else if (defined[argument.getSlot()]) {
+            int speed = values[argument.getSlot()];
+            if (listener != null) {
+                log("Set speed to " + speed + " using variable " + argument.getVariable());
+            }
+            runtime.setSpeed(speed, true);
+        } else {
+            log("Error: Variable '" + argument.getVariable() + "' not defined");
+        }
+    }
+
+    @Override
+    public Void visitAssign(AssignStatement statement) {
+        values[statement.getSlot()] = statement.getValue();
+        defined[statement.getSlot()] = true;
+        if (listener != null) {
+            log("Variable created: " + statement.getVariable() + " = " + statement.getValue());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIf(IfStatement statement) {
+        String condition = statement.getCondition();
+        boolean enemyCheck = condition.equals("enemyNear");
+
+        boolean value;
+        if (enemyCheck) {
+            value = runtime.enemyNear();
+        } else if (defined[statement.getSlot()]) {
+            value = values[statement.getSlot()] != 0;
+        } else {
+            log("Error: Variable '" + condition + "' not defined");
+            return null;
+        }
+
+        if (listener != null) {
+            log("Checking condition: " + condition + " is " + value);
+        }
+        if (!value) {
+            log("Condition is false, skipping if block");
+            return null;
+        }
+
+        log("Condition is true, executing if block");
+        if (enemyCheck) {
+            enemyCheckDepth++;
+        }
+        try {
+            runBlock(statement.getBody());
+        } finally {
+            if (enemyCheck) {
+                enemyCheckDepth--;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForStatement statement) {
+        String var = statement.getVariable();
+        int slot = statement.getSlot();
+        if (listener != null) {
+            log("Executing for loop with " + var + " from " + statement.getStart() + " to " + (statement.getEnd() - 1));
+        }
+
+        loopDepth++;
+        defined[slot] = true;
+        try {
+            for (int i = statement.getStart(); i < statement.getEnd(); i++) {
+                values[slot] = i;
+                if (profile != null) {
+                    profile.countIteration();
+                }
+                if (listener != null) {
+                    log("Loop iteration: " + var + " = " + i);
+                }
+                runBlock(statement.getBody());
+            }
+        } finally {
+            loopDepth--;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitRepeat(RepeatStatement statement) {
+        // runBlock already counted the first step
+        runtime.step(statement.getSteps() - 1);
+        if (profile != null) {
+            profile.countStatements(statement.getLine(), statement.getSteps() - 1);
+        }
+
+        String name = statement.getCommand().getName();
+        int count = statement.getCount();
+        if (!world.isCommandAllowed(statement.getCommand().getCommand())) {
+            log("Unrecognized command: " + name + "()");
+            return null;
+        }
+        if (profile != null) {
+            profile.countActions(statement.getCommand().getCommand(), count);
+        }
+
+        if (listener != null) {
+            log("Executing: " + name + "() x" + count);
+        }
+        switch (statement.getCommand().getCommand()) {
+            case MOVE_LEFT:
+                runtime.moveLeft(count);
+                break;
+            case MOVE_RIGHT:
+                runtime.moveRight(count);
+                break;
+            case JUMP:
+                runtime.jump(count);
+                break;
+            case SHOOT:
+                executeShoots(count, loopDepth > 0 || statement.isLoop());
+                break;
+            default:
+                log("Unknown command: " + name);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitMotion(MotionStatement statement) {
+        // runBlock already counted the first step
+        runtime.step(statement.getSteps() - 1);
+        if (profile != null) {
+            profile.countStatements(statement.getLine(), statement.getSteps() - 1);
+        }
+        if (listener != null) {
+            log("Repeating " + statement.getBody().size() + " moves " + statement.getIterations() + " times");
+        }
+
+        runtime.beginMoves();
+        for (Statement move : statement.getBody()) {
+            CommandStatement command = move instanceof RepeatStatement
+                ? ((RepeatStatement) move).getCommand() : (CommandStatement) move;
+            int count = move instanceof RepeatStatement ? ((RepeatStatement) move).getCount() : 1;
+            if (!world.isCommandAllowed(command.getCommand())) {
+                log("Unrecognized command: " + command.getName() + "()");
+                continue;
+            }
+            if (profile != null) {
+                profile.countActions(command.getCommand(), (long) count * statement.getIterations());
+            }
+
+            switch (command.getCommand()) {
+                case MOVE_LEFT:
+                    runtime.planMoveLeft(count);
+                    break;
+                case MOVE_RIGHT:
+                    runtime.planMoveRight(count);
+                    break;
+                case MOVE_BACK:
+                    runtime.planMoveBack(enemyCheckDepth > 0);
+                    break;
+                case JUMP:
+                    runtime.planJump();
+                    break;
+                case SET_SPEED:
+                    runtime.planSetSpeed(command.getArgument().getValue());
+                    break;
+                default:
+                    log("Unknown command: " + command.getName());
+            }
+        }
+        runtime.runMoves(statement.getIterations());
+        return null;
+    }
+
+    private void executeShoots(int count, boolean inLoop) {
+        int before = world.getTargetsHit();
+        int hits = runtime.shoot(inLoop, count);
+        if (listener != null) {
+            for (int i = 1; i <= hits; i++) {
+                log("Target " + (before + i) + " hit!");
+            }
+            if (hits < count) {
+                log("No more targets to hit!");
+            }
+        }
+    }
+
+    private void log(String text) {
+        if (listener != null) {
+            listener.onOutput(text);
+        }
+    }
+}
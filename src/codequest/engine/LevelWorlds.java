@@ -0,0 +1,87 @@
+package codequest.engine;
+
+import codequest.lang.Command;
+import java.util.EnumSet;
+
+/**
+ * LevelWorlds - Creates the headless World for each level number
+ * Geometry and win conditions mirror the JavaFX level classes; the loops and free roam
+ * levels draw their entities straight from the World's EntityStore
+ */
+public final class LevelWorlds {
+
+    public static final int LEVEL_COUNT = 5;
+
+    private LevelWorlds() {
+    }
+
+    /**
+     * Create a fresh world for the given 1-based level number
+     */
+    public static World create(int levelId) {
+        switch (levelId) {
+            case 1:
+                return commandsWorld();
+            case 2:
+                return variablesWorld();
+            case 3:
+                return conditionalsWorld();
+            case 4:
+                return loopsWorld();
+            case 5:
+                return freeRoamWorld();
+            default:
+                throw new IllegalArgumentException("Unknown level: " + levelId);
+        }
+    }
+
+    // Level 1: reach the goal on the left using moveLeft() and jump()
+    private static World commandsWorld() {
+        World world = new World(1, EnumSet.of(Command.MOVE_LEFT, Command.JUMP));
+        world.setGoal(0, 150, 150, 100, true);
+        world.setWinCondition(WinCondition.allOf(WinCondition.inGoal(),
+            WinCondition.executed(Command.MOVE_LEFT), WinCondition.executed(Command.JUMP)));
+        return world;
+    }
+
+    // Level 2: set the speed from a variable and move right into the goal
+    private static World variablesWorld() {
+        World world = new World(2, EnumSet.of(Command.SET_SPEED, Command.MOVE_RIGHT, Command.MOVE_LEFT));
+        world.setGoal(350, 200, 120, 80, true);
+        world.setWinCondition(WinCondition.allOf(WinCondition.inGoal(), WinCondition.used(Construct.VARIABLE)));
+        return world;
+    }
+
+    // Level 3: move back while the enemy is near, then reach the goal; the enemy moves each tick
+    private static World conditionalsWorld() {
+        World world = new World(3, EnumSet.of(Command.MOVE_BACK, Command.MOVE_RIGHT));
+        world.setGoal(500, 200, 100, 50, true);
+        // Far, Near, Far, Far, Near, one position per tick
+        world.setEnemyPattern(false, true, false, false, true);
+        world.setWinCondition(WinCondition.allOf(WinCondition.inGoal(),
+            WinCondition.used(Construct.CONDITIONAL), WinCondition.used(Construct.ENEMY_CHECK)));
+        return world;
+    }
+
+    // Level 4: shoot all three targets from a loop, then reach the goal
+    private static World loopsWorld() {
+        World world = new World(4, EnumSet.of(Command.SHOOT, Command.MOVE_RIGHT));
+        world.setTargets(new double[] {200, 300, 400}, new double[] {100, 150, 200}, 30, World.Targeting.SEQUENTIAL);
+        world.setGoal(500, 200, 100, 50, true);
+        world.setWinCondition(WinCondition.allOf(WinCondition.targetsHit(3), WinCondition.inGoal(),
+            WinCondition.used(Construct.LOOP)));
+        return world;
+    }
+
+    // Level 5: everything - hit all four targets and finish inside the goal columns
+    private static World freeRoamWorld() {
+        World world = new World(5, EnumSet.allOf(Command.class));
+        world.setObstacles(new double[] {120, 270, 420}, 200, 30, 100);
+        world.setTargets(new double[] {150, 250, 350, 450}, new double[] {100, 300, 100, 300}, 25,
+            World.Targeting.NEAREST);
+        world.addEnemy(250, 200, 40);
+        world.setGoal(500, 200, 80, 80, false);
+        world.setWinCondition(WinCondition.allOf(WinCondition.allTargetsHit(), WinCondition.inGoal()));
+        return world;
+    }
+}
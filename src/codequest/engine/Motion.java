@@ -0,0 +1,70 @@
+package codequest.engine;
+
+/**
+ * Motion - The effect of a run of moves on the sprite's x position, as x -> clamp(x + offset, low, high)
+ * moveLeft and moveRight are clamped shifts and moveBack is a constant. Functions of this
+ * shape compose into the same shape and can be raised to any power in constant time, so a
+ * loop of moves runs in closed form. Only valid for positions already inside [0, maxX].
+ */
+final class Motion {
+
+    private final double offset;
+    private final double low;
+    private final double high;
+
+    private Motion(double offset, double low, double high) {
+        this.offset = offset;
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Leaves the position where it is
+     */
+    static Motion identity(double maxX) {
+        return new Motion(0, 0, maxX);
+    }
+
+    /**
+     * One move by the given distance, stopping at the edges
+     */
+    static Motion shift(double distance, double maxX) {
+        return new Motion(distance, 0, maxX);
+    }
+
+    /**
+     * Sends the sprite to a fixed position
+     */
+    static Motion constant(double x) {
+        return new Motion(0, x, x);
+    }
+
+    /**
+     * This motion followed by the next one
+     */
+    Motion then(Motion next) {
+        return new Motion(offset + next.offset,
+            clamp(low + next.offset, next.low, next.high),
+            clamp(high + next.offset, next.low, next.high));
+    }
+
+    /**
+     * This motion applied the given number of times in a row (at least once)
+     */
+    Motion repeat(int times) {
+        double extra = (double) (times - 1) * offset;
+        if (offset >= 0) {
+            // Moving right only ever raises the floor, up to the ceiling
+            return new Motion(times * offset, Math.min(low + extra, high), high);
+        }
+        return new Motion(times * offset, low, Math.max(high + extra, low));
+    }
+
+    double apply(double x) {
+        return clamp(x + offset, low, high);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
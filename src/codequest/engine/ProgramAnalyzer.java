@@ -0,0 +1,419 @@
+package codequest.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import codequest.lang.AssignStatement;
+import codequest.lang.Command;
+import codequest.lang.CommandStatement;
+import codequest.lang.Expression;
+import codequest.lang.ForStatement;
+import codequest.lang.IfStatement;
+import codequest.lang.MotionStatement;
+import codequest.lang.Program;
+import codequest.lang.RepeatStatement;
+import codequest.lang.Statement;
+import codequest.lang.StatementVisitor;
+
+/**
+ * ProgramAnalyzer - Works out whether a program passes a level without running every step
+ * In this language every value is known before the program runs: variables only ever
+ * hold literals or loop counters, loops have constant bounds, and the enemy is a function
+ * of the tick. The only thing that makes a run long is a loop with many iterations. The
+ * analyzer therefore abstracts the state at the top of each loop iteration to everything
+ * except the absolute step count, keeping only the clock's phase in the enemy pattern.
+ * Once that abstract state repeats, every later cycle of iterations does exactly the same,
+ * so the whole cycles are applied in one go and only the remainder is stepped through.
+ *
+ * Actions go through a ProgramRuntime, so the World ends in the state a full run would
+ * leave it in, with the same step count and final position. Programs the analyzer
+ * cannot settle within its work budget, that hit the step limit, or with a loop whose
+ * body writes its own counter are left to the Interpreter. Only levels whose outcome
+ * depends on nothing else are analyzed: no obstacles, targets hit in order, and a win
+ * condition that cannot end a run early. ProgramAnalyzerCheck runs random programs both
+ * ways and compares the results.
+ */
+public final class ProgramAnalyzer implements StatementVisitor<Void> {
+
+    // Statements the analyzer may step through before giving up
+    public static final int DEFAULT_BUDGET = 100_000;
+
+    private final World world;
+    private final ProgramRuntime runtime;
+    private final int period; // length of the enemy pattern, or 1 without an enemy
+    private int budget;
+
+    private int[] values;
+    private boolean[] defined;
+    private int loopDepth = 0;
+    private int enemyCheckDepth = 0;
+
+    // Sprite positions reached during the run
+    private double minX;
+    private double maxX;
+
+    private ProgramAnalyzer(World world, long stepLimit, int budget) {
+        this.world = world;
+        this.runtime = new ProgramRuntime(world, null, stepLimit);
+        this.period = Math.max(1, world.getEnemyPeriod());
+        this.budget = budget;
+        this.minX = world.getSprite().getXPos();
+        this.maxX = minX;
+    }
+
+    /**
+     * Decide a program with the default budget
+     *
+     * @see #analyze(Program, World, long, int)
+     */
+    public static Result analyze(Program program, World world, long stepLimit) {
+        return analyze(program, world, stepLimit, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Decide a freshly parsed, unoptimized program against a fresh World
+     *
+     * @return the outcome, or null if the program has to be run; the World is then in an
+     *         unspecified state and should be thrown away
+     */
+    public static Result analyze(Program program, World world, long stepLimit, int budget) {
+        if (world.hasObstacles() || world.getTargeting() != World.Targeting.SEQUENTIAL || world.canEndEarly()) {
+            return null;
+        }
+
+        ProgramAnalyzer analyzer = new ProgramAnalyzer(world, stepLimit, budget);
+        analyzer.values = new int[program.getSlotCount()];
+        analyzer.defined = new boolean[program.getSlotCount()];
+        try {
+            analyzer.runBlock(program.getStatements());
+        } catch (ExecutionLimitException | GiveUp e) {
+            return null;
+        }
+        return new Result(world.isComplete(), analyzer.runtime.getSteps(), world.getSprite().getXPos(),
+            analyzer.minX, analyzer.maxX);
+    }
+
+    /**
+     * What a run of the program would end with
+     */
+    public static final class Result {
+        private final boolean passed;
+        private final long steps;
+        private final double finalX;
+        private final double minX;
+        private final double maxX;
+
+        Result(boolean passed, long steps, double finalX, double minX, double maxX) {
+            this.passed = passed;
+            this.steps = steps;
+            this.finalX = finalX;
+            this.minX = minX;
+            this.maxX = maxX;
+        }
+
+        public boolean isPassed() {
+            return passed;
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+
+        public double getFinalX() {
+            return finalX;
+        }
+
+        /**
+         * Get the leftmost position the sprite reached at any point
+         */
+        public double getMinX() {
+            return minX;
+        }
+
+        /**
+         * Get the rightmost position the sprite reached at any point
+         */
+        public double getMaxX() {
+            return maxX;
+        }
+    }
+
+    private void runBlock(List<Statement> statements) {
+        for (Statement statement : statements) {
+            if (--budget < 0) {
+                throw new GiveUp();
+            }
+            runtime.step();
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitCommand(CommandStatement statement) {
+        Command command = statement.getCommand();
+        if (!world.isCommandAllowed(command)) {
+            return null;
+        }
+
+        switch (command) {
+            case MOVE_LEFT:
+                runtime.moveLeft();
+                break;
+            case MOVE_RIGHT:
+                runtime.moveRight();
+                break;
+            case JUMP:
+                runtime.jump();
+                break;
+            case MOVE_BACK:
+                runtime.moveBack(enemyCheckDepth > 0);
+                break;
+            case SHOOT:
+                runtime.shoot(loopDepth > 0);
+                break;
+            case SET_SPEED:
+                setSpeed(statement.getArgument());
+                break;
+            default:
+                break;
+        }
+
+        double x = world.getSprite().getXPos();
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        return null;
+    }
+
+    private void setSpeed(Expression argument) {
+        if (argument == null) {
+            return;
+        }
+        if (argument.isLiteral()) {
+            runtime.setSpeed(argument.getValue(), false);
+        } else if (defined[argument.getSlot()]) {
+            runtime.setSpeed(values[argument.getSlot()], true);
+        }
+    }
+
+    @Override
+    public Void visitAssign(AssignStatement statement) {
+        values[statement.getSlot()] = statement.getValue();
+        defined[statement.getSlot()] = true;
+        return null;
+    }
+
+    @Override
+    public Void visitIf(IfStatement statement) {
+        boolean enemyCheck = statement.getCondition().equals("enemyNear");
+        boolean value;
+        if (enemyCheck) {
+            value = runtime.enemyNear();
+        } else {
+            value = defined[statement.getSlot()] && values[statement.getSlot()] != 0;
+        }
+        if (!value) {
+            return null;
+        }
+
+        if (enemyCheck) {
+            enemyCheckDepth++;
+        }
+        try {
+            runBlock(statement.getBody());
+        } finally {
+            if (enemyCheck) {
+                enemyCheckDepth--;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForStatement statement) {
+        int slot = statement.getSlot();
+        if (writes(statement.getBody(), slot)) {
+            // The counter then ends with whatever the body left in it, not the last value
+            throw new GiveUp();
+        }
+        // A body that reads its counter never repeats a state, so there is nothing to look for
+        boolean counterUsed = mentions(statement.getBody(), slot);
+        Map<LoopState, long[]> seen = counterUsed ? null : new HashMap<>();
+
+        loopDepth++;
+        defined[slot] = true;
+        try {
+            long end = statement.getEnd();
+            for (long i = statement.getStart(); i < end; i++) {
+                if (seen != null) {
+                    LoopState state = new LoopState(this, slot);
+                    long[] earlier = seen.putIfAbsent(state, new long[] {i, runtime.getSteps()});
+                    if (earlier != null) {
+                        i += skipCycles(end - i, i - earlier[0], runtime.getSteps() - earlier[1]);
+                        seen = null;
+                        if (i >= end) {
+                            break;
+                        }
+                    }
+                }
+                values[slot] = (int) i;
+                runBlock(statement.getBody());
+            }
+            if (end > statement.getStart()) {
+                // The counter keeps its last value, even when that iteration was skipped
+                values[slot] = (int) (end - 1);
+            }
+        } finally {
+            loopDepth--;
+        }
+        return null;
+    }
+
+    /**
+     * Apply as many whole cycles of iterations as fit in the iterations left
+     * A cycle leaves everything but the step count and clock as it found it.
+     *
+     * @return the number of iterations skipped
+     */
+    private long skipCycles(long remaining, long cycleLength, long cycleSteps) {
+        long cycles = remaining / cycleLength;
+        if (cycles == 0) {
+            return 0;
+        }
+        long extraSteps;
+        try {
+            extraSteps = Math.multiplyExact(cycles, cycleSteps);
+        } catch (ArithmeticException e) {
+            throw new GiveUp();
+        }
+        if (extraSteps > runtime.getStepLimit() - runtime.getSteps()) {
+            // The run would hit the step limit part way; the Interpreter reports where
+            throw new GiveUp();
+        }
+        runtime.restoreSteps(runtime.getSteps() + extraSteps);
+        world.getClock().advance(extraSteps);
+        return cycles * cycleLength;
+    }
+
+    /**
+     * Whether any statement in a block reads or writes a variable slot
+     */
+    private static boolean mentions(List<Statement> statements, int slot) {
+        for (Statement statement : statements) {
+            if (statement instanceof CommandStatement) {
+                Expression argument = ((CommandStatement) statement).getArgument();
+                if (argument != null && !argument.isLiteral() && argument.getSlot() == slot) {
+                    return true;
+                }
+            } else if (statement instanceof AssignStatement) {
+                if (((AssignStatement) statement).getSlot() == slot) {
+                    return true;
+                }
+            } else if (statement instanceof IfStatement) {
+                IfStatement ifStatement = (IfStatement) statement;
+                if (ifStatement.getSlot() == slot || mentions(ifStatement.getBody(), slot)) {
+                    return true;
+                }
+            } else if (statement instanceof ForStatement) {
+                ForStatement loop = (ForStatement) statement;
+                if (loop.getSlot() == slot || mentions(loop.getBody(), slot)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether any statement in a block assigns a variable slot, or loops over it
+     */
+    private static boolean writes(List<Statement> statements, int slot) {
+        for (Statement statement : statements) {
+            if (statement instanceof AssignStatement) {
+                if (((AssignStatement) statement).getSlot() == slot) {
+                    return true;
+                }
+            } else if (statement instanceof IfStatement) {
+                if (writes(((IfStatement) statement).getBody(), slot)) {
+                    return true;
+                }
+            } else if (statement instanceof ForStatement) {
+                ForStatement loop = (ForStatement) statement;
+                if (loop.getSlot() == slot || writes(loop.getBody(), slot)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Void visitRepeat(RepeatStatement statement) {
+        // Only parsed programs are analyzed; optimized ones go to the Interpreter
+        throw new GiveUp();
+    }
+
+    @Override
+    public Void visitMotion(MotionStatement statement) {
+        throw new GiveUp();
+    }
+
+    /**
+     * Everything at the top of a loop iteration that the rest of the run can depend on,
+     * apart from the absolute step count
+     */
+    private static final class LoopState {
+        private final double x;
+        private final int speed;
+        private final int targetsHit;
+        private final int commands;
+        private final int constructs;
+        private final long phase;
+        private final int[] values;
+        private final boolean[] defined;
+        private final int hash;
+
+        LoopState(ProgramAnalyzer analyzer, int counterSlot) {
+            World world = analyzer.world;
+            x = world.getSprite().getXPos();
+            speed = world.getSprite().getSpeed();
+            targetsHit = world.getTargetsHit();
+            commands = world.getExecutedCommands();
+            constructs = world.getConstructs();
+            phase = world.getClock().getTick() % analyzer.period;
+            values = analyzer.values.clone();
+            values[counterSlot] = 0; // unread in the body, so only its last value matters
+            defined = analyzer.defined.clone();
+            hash = ((((Double.hashCode(x) * 31 + speed) * 31 + targetsHit) * 31 + commands) * 31 + constructs) * 31
+                + Long.hashCode(phase) * 31 + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof LoopState)) {
+                return false;
+            }
+            LoopState state = (LoopState) other;
+            return hash == state.hash && x == state.x && speed == state.speed && targetsHit == state.targetsHit
+                && commands == state.commands && constructs == state.constructs && phase == state.phase
+                && Arrays.equals(values, state.values) && Arrays.equals(defined, state.defined);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Thrown when the program is better left to the Interpreter
+     */
+    private static final class GiveUp extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        GiveUp() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package codequest.engine;
+
+import java.util.Random;
+
+import codequest.lang.Parser;
+import codequest.lang.Program;
+
+/**
+ * ProgramAnalyzerCheck - Differential check of the ProgramAnalyzer against the Interpreter
+ * Runs fixed regression programs and random ones on every level, once through the analyzer
+ * and once through the Interpreter, and reports every program the analyzer decided
+ * differently: pass or fail, step count or final position. The random programs lean on
+ * what the analyzer has to get right, such as long loops, loops that read or write their
+ * counter, nested loops reusing a name and checks of the enemy inside loops.
+ *
+ * Usage: ProgramAnalyzerCheck [programs] [seed]
+ * Exits with status 1 if any program was decided differently.
+ */
+public final class ProgramAnalyzerCheck {
+
+    // Kept low so nested long loops reach it quickly; the analyzer must leave those alone
+    private static final long STEP_LIMIT = 1_000_000L;
+
+    // Programs the analyzer once got wrong
+    private static final String[] REGRESSIONS = {
+        // The body overwrites the counter, which keeps that value after the loop
+        "for (int s = 0; s < 11; s++) { s = 30; } setSpeed(s); moveRight(); moveRight(); moveRight();",
+        // A nested loop reusing the name leaves the counter at its own last value
+        "for (int i = 0; i < 9; i++) { for (int i = 0; i < 3; i++) { moveRight(); } } setSpeed(i); moveRight();",
+    };
+
+    private static final String[] SIMPLE = {
+        "moveLeft();", "moveRight();", "jump();", "shoot();", "moveBack();", "setSpeed(3);", "setSpeed(9);",
+        "setSpeed(v);", "setSpeed(i);", "setSpeed(j);", "v = 7;", "v = 0;", "i = 2;", "j = 20;"
+    };
+    private static final int[] BOUNDS = {0, 1, 3, 17, 250, 5000, 123456};
+
+    private final Random random;
+
+    private ProgramAnalyzerCheck(long seed) {
+        random = new Random(seed);
+    }
+
+    private String block(int depth) {
+        StringBuilder source = new StringBuilder();
+        int statements = 1 + random.nextInt(5);
+        for (int n = 0; n < statements; n++) {
+            int kind = random.nextInt(20);
+            if (kind < 14 || depth == 3) {
+                source.append(SIMPLE[random.nextInt(SIMPLE.length)]).append('\n');
+            } else if (kind < 16) {
+                source.append(random.nextBoolean() ? "if (enemyNear) {\n" : "if (v) {\n")
+                    .append(block(depth + 1)).append("}\n");
+            } else {
+                String counter = random.nextBoolean() ? "i" : "j";
+                // Only the outermost loop may be long, so nesting stays within reach of the limit
+                int end = BOUNDS[random.nextInt(depth == 0 ? BOUNDS.length : 5)];
+                source.append("for (int ").append(counter).append(" = 0; ").append(counter).append(" < ")
+                    .append(end).append("; ").append(counter).append("++) {\n")
+                    .append(block(depth + 1)).append("}\n");
+            }
+        }
+        return source.toString();
+    }
+
+    /**
+     * Compare the two on one program and level, returning a description of any difference
+     */
+    private static String compare(String source, int levelId) {
+        Program program = Parser.parse(source);
+        if (!program.getErrors().isEmpty()) {
+            return null;
+        }
+        ProgramAnalyzer.Result analyzed = ProgramAnalyzer.analyze(program, LevelWorlds.create(levelId), STEP_LIMIT);
+        if (analyzed == null) {
+            return null;
+        }
+
+        World world = LevelWorlds.create(levelId);
+        Interpreter interpreter = new Interpreter(world, null, STEP_LIMIT);
+        String expected;
+        try {
+            interpreter.run(program);
+            expected = describe(world.isComplete(), interpreter.getSteps(), world.getSprite().getXPos());
+        } catch (ExecutionLimitException e) {
+            expected = "step limit";
+        }
+        String actual = describe(analyzed.isPassed(), analyzed.getSteps(), analyzed.getFinalX());
+        return actual.equals(expected) ? null
+            : "level " + levelId + ": analyzer " + actual + ", interpreter " + expected + "\n" + source;
+    }
+
+    private static String describe(boolean passed, long steps, double x) {
+        return (passed ? "passed" : "failed") + " after " + steps + " steps at x " + x;
+    }
+
+    /**
+     * Differential check: ProgramAnalyzerCheck [programs] [seed]
+     */
+    public static void main(String[] args) {
+        int programs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        ProgramAnalyzerCheck check = new ProgramAnalyzerCheck(seed);
+
+        int compared = 0;
+        int mismatches = 0;
+        for (int n = 0; n < REGRESSIONS.length + programs; n++) {
+            String source = n < REGRESSIONS.length ? REGRESSIONS[n] : check.block(0);
+            for (int level = 1; level <= LevelWorlds.LEVEL_COUNT; level++) {
+                compared++;
+                String difference = compare(source, level);
+                if (difference != null) {
+                    mismatches++;
+                    System.out.println(difference);
+                }
+            }
+        }
+
+        System.out.printf("%d runs compared, %d decided differently%n", compared, mismatches);
+        System.exit(mismatches > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,359 @@
+package codequest.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import codequest.lang.AssignStatement;
+import codequest.lang.Command;
+import codequest.lang.CommandStatement;
+import codequest.lang.Expression;
+import codequest.lang.ForStatement;
+import codequest.lang.IfStatement;
+import codequest.lang.MotionStatement;
+import codequest.lang.Program;
+import codequest.lang.ProgramHash;
+import codequest.lang.RepeatStatement;
+import codequest.lang.Statement;
+import codequest.lang.StatementVisitor;
+
+/**
+ * ProgramCompiler - Compiles parsed programs to hidden classes for high-volume grading
+ * The generated code calls ProgramRuntime directly, so long loops get JIT-compiled like
+ * ordinary Java and perform exactly the actions the Interpreter would. Compiled classes
+ * are cached by program hash and allowed command set.
+ */
+public class ProgramCompiler {
+
+    private static final String CLASS_NAME = "codequest/engine/GeneratedProgram";
+    private static final String RUNTIME = "codequest/engine/ProgramRuntime";
+    private static final String INTERFACE = "codequest/engine/CompiledProgram";
+
+    private final int capacity;
+    private final Map<String, CompiledProgram> cache;
+
+    public ProgramCompiler(int capacity) {
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<String, CompiledProgram>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledProgram> eldest) {
+                return size() > ProgramCompiler.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Compile a program for a world that allows the given commands
+     * Returns null if the program is too large for a single JVM method.
+     */
+    public CompiledProgram compile(Program program, Set<Command> commands) {
+        String key = ProgramHash.hash(program) + "/" + Command.mask(commands);
+
+        synchronized (cache) {
+            CompiledProgram compiled = cache.get(key);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+
+        CompiledProgram compiled;
+        try {
+            compiled = define(generate(program, commands));
+        } catch (IllegalStateException e) {
+            // Too much code for one method; the caller falls back to the Interpreter
+            return null;
+        }
+
+        synchronized (cache) {
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private static byte[] generate(Program program, Set<Command> commands) {
+        ClassFileBuilder builder = new ClassFileBuilder(CLASS_NAME);
+        CodeGenerator generator = new CodeGenerator(builder, program, commands);
+        generator.generate();
+        return builder.build(INTERFACE, "run", "(L" + RUNTIME + ";)V", generator.code,
+            RUNTIME, generator.intLocals);
+    }
+
+    private static CompiledProgram define(byte[] classFile) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+            return (CompiledProgram) constructor.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not define compiled program", e);
+        }
+    }
+
+    /**
+     * Emits the run method
+     *
+     * Locals: 0 = this, 1 = runtime, then a value and a defined flag per variable slot,
+     * then one counter per for loop.
+     */
+    private static final class CodeGenerator implements StatementVisitor<Void> {
+
+        private final Program program;
+        private final int commandMask;
+        private final ClassFileBuilder.Code code;
+        private final int counterBase;
+        private final int intLocals;
+        private int nextCounter = 0;
+        private int loopDepth = 0;
+        private int enemyCheckDepth = 0;
+
+        CodeGenerator(ClassFileBuilder builder, Program program, Set<Command> commands) {
+            this.program = program;
+            this.commandMask = Command.mask(commands);
+            this.code = builder.newCode();
+            this.counterBase = 2 + program.getSlotCount() * 2;
+            this.intLocals = program.getSlotCount() * 2 + countLoops(program.getStatements());
+        }
+
+        void generate() {
+            // Initialize every int local so all branch targets share one frame
+            for (int local = 2; local < 2 + intLocals; local++) {
+                code.pushInt(0);
+                code.istore(local);
+            }
+
+            generateBlock(program.getStatements());
+            code.op(ClassFileBuilder.RETURN);
+        }
+
+        private void generateBlock(List<Statement> statements) {
+            for (Statement statement : statements) {
+                runtimeCall("step", "()V");
+                statement.accept(this);
+            }
+        }
+
+        private static int countLoops(List<Statement> statements) {
+            int loops = 0;
+            for (Statement statement : statements) {
+                if (statement instanceof ForStatement) {
+                    loops += 1 + countLoops(((ForStatement) statement).getBody());
+                } else if (statement instanceof IfStatement) {
+                    loops += countLoops(((IfStatement) statement).getBody());
+                }
+            }
+            return loops;
+        }
+
+        private static int valueLocal(int slot) {
+            return 2 + slot * 2;
+        }
+
+        private static int definedLocal(int slot) {
+            return 3 + slot * 2;
+        }
+
+        private boolean isAllowed(Command command) {
+            return command != null && (commandMask & command.getBit()) != 0;
+        }
+
+        private void runtimeCall(String name, String descriptor) {
+            code.op(ClassFileBuilder.ALOAD_1);
+            code.invokeVirtual(RUNTIME, name, descriptor);
+        }
+
+        @Override
+        public Void visitCommand(CommandStatement statement) {
+            Command command = statement.getCommand();
+            if (!isAllowed(command)) {
+                // The Interpreter only reports these, so there is nothing to run
+                return null;
+            }
+
+            switch (command) {
+                case MOVE_LEFT:
+                case MOVE_RIGHT:
+                case JUMP:
+                    runtimeCall(command.getName(), "()V");
+                    break;
+                case MOVE_BACK:
+                    code.op(ClassFileBuilder.ALOAD_1);
+                    code.pushBoolean(enemyCheckDepth > 0);
+                    code.invokeVirtual(RUNTIME, "moveBack", "(Z)V");
+                    break;
+                case SHOOT:
+                    code.op(ClassFileBuilder.ALOAD_1);
+                    code.pushBoolean(loopDepth > 0);
+                    code.invokeVirtual(RUNTIME, "shoot", "(Z)I");
+                    code.op(ClassFileBuilder.POP);
+                    break;
+                case SET_SPEED:
+                    generateSetSpeed(statement.getArgument());
+                    break;
+                default:
+                    break;
+            }
+            return null;
+        }
+
+        private void generateSetSpeed(Expression argument) {
+            if (argument == null) {
+                return;
+            }
+            if (argument.isLiteral()) {
+                code.op(ClassFileBuilder.ALOAD_1);
+                code.pushInt(argument.getValue());
+                code.pushBoolean(false);
+                code.invokeVirtual(RUNTIME, "setSpeed", "(IZ)V");
+                return;
+            }
+
+            // Only set the speed once the variable has been assigned
+            ClassFileBuilder.Label skip = new ClassFileBuilder.Label();
+            code.iload(definedLocal(argument.getSlot()));
+            code.branch(ClassFileBuilder.IFEQ, skip);
+            code.op(ClassFileBuilder.ALOAD_1);
+            code.iload(valueLocal(argument.getSlot()));
+            code.pushBoolean(true);
+            code.invokeVirtual(RUNTIME, "setSpeed", "(IZ)V");
+            code.mark(skip);
+        }
+
+        @Override
+        public Void visitAssign(AssignStatement statement) {
+            code.pushInt(statement.getValue());
+            code.istore(valueLocal(statement.getSlot()));
+            code.pushInt(1);
+            code.istore(definedLocal(statement.getSlot()));
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfStatement statement) {
+            ClassFileBuilder.Label end = new ClassFileBuilder.Label();
+            boolean enemyCheck = statement.getCondition().equals("enemyNear");
+
+            if (enemyCheck) {
+                runtimeCall("enemyNear", "()Z");
+                code.branch(ClassFileBuilder.IFEQ, end);
+            } else {
+                code.iload(definedLocal(statement.getSlot()));
+                code.branch(ClassFileBuilder.IFEQ, end);
+                code.iload(valueLocal(statement.getSlot()));
+                code.branch(ClassFileBuilder.IFEQ, end);
+            }
+
+            if (enemyCheck) {
+                enemyCheckDepth++;
+            }
+            generateBlock(statement.getBody());
+            if (enemyCheck) {
+                enemyCheckDepth--;
+            }
+
+            code.mark(end);
+            return null;
+        }
+
+        @Override
+        public Void visitFor(ForStatement statement) {
+            int counter = counterBase + nextCounter++;
+            int slot = statement.getSlot();
+            ClassFileBuilder.Label body = new ClassFileBuilder.Label();
+            ClassFileBuilder.Label condition = new ClassFileBuilder.Label();
+
+            code.pushInt(1);
+            code.istore(definedLocal(slot));
+            code.pushInt(statement.getStart());
+            code.istore(counter);
+            code.branch(ClassFileBuilder.GOTO, condition);
+
+            // The loop variable gets the counter's value, so assigning to it
+            // inside the body does not change how often the loop runs
+            code.mark(body);
+            code.iload(counter);
+            code.istore(valueLocal(slot));
+            loopDepth++;
+            generateBlock(statement.getBody());
+            loopDepth--;
+            code.iinc(counter, 1);
+
+            code.mark(condition);
+            code.iload(counter);
+            code.pushInt(statement.getEnd());
+            code.branch(ClassFileBuilder.IF_ICMPLT, body);
+            return null;
+        }
+
+        @Override
+        public Void visitRepeat(RepeatStatement statement) {
+            code.op(ClassFileBuilder.ALOAD_1);
+            code.pushInt(statement.getSteps() - 1);
+            code.invokeVirtual(RUNTIME, "step", "(I)V");
+
+            Command command = statement.getCommand().getCommand();
+            if (!isAllowed(command)) {
+                return null;
+            }
+
+            code.op(ClassFileBuilder.ALOAD_1);
+            if (command == Command.SHOOT) {
+                code.pushBoolean(loopDepth > 0 || statement.isLoop());
+                code.pushInt(statement.getCount());
+                code.invokeVirtual(RUNTIME, "shoot", "(ZI)I");
+                code.op(ClassFileBuilder.POP);
+            } else {
+                code.pushInt(statement.getCount());
+                code.invokeVirtual(RUNTIME, command.getName(), "(I)V");
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitMotion(MotionStatement statement) {
+            code.op(ClassFileBuilder.ALOAD_1);
+            code.pushInt(statement.getSteps() - 1);
+            code.invokeVirtual(RUNTIME, "step", "(I)V");
+
+            runtimeCall("beginMoves", "()V");
+            for (Statement move : statement.getBody()) {
+                CommandStatement command = move instanceof RepeatStatement
+                    ? ((RepeatStatement) move).getCommand() : (CommandStatement) move;
+                int count = move instanceof RepeatStatement ? ((RepeatStatement) move).getCount() : 1;
+                if (!isAllowed(command.getCommand())) {
+                    continue;
+                }
+
+                code.op(ClassFileBuilder.ALOAD_1);
+                switch (command.getCommand()) {
+                    case MOVE_LEFT:
+                    case MOVE_RIGHT:
+                        code.pushInt(count);
+                        code.invokeVirtual(RUNTIME,
+                            command.getCommand() == Command.MOVE_LEFT ? "planMoveLeft" : "planMoveRight", "(I)V");
+                        break;
+                    case MOVE_BACK:
+                        code.pushBoolean(enemyCheckDepth > 0);
+                        code.invokeVirtual(RUNTIME, "planMoveBack", "(Z)V");
+                        break;
+                    case JUMP:
+                        code.invokeVirtual(RUNTIME, "planJump", "()V");
+                        break;
+                    default:
+                        code.pushInt(command.getArgument().getValue());
+                        code.invokeVirtual(RUNTIME, "planSetSpeed", "(I)V");
+                        break;
+                }
+            }
+
+            code.op(ClassFileBuilder.ALOAD_1);
+            code.pushInt(statement.getIterations());
+            code.invokeVirtual(RUNTIME, "runMoves", "(I)V");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package codequest.engine;
+
+import java.util.Arrays;
+
+/**
+ * ProgramRuntime - The actions a program can perform on a World
+ * Shared by the Interpreter and by CompiledProgram classes so both produce the same
+ * action trace. Methods are public because generated classes call them directly.
+ */
+public final class ProgramRuntime {
+
+    // Kinds of move in a planned motion loop
+    private static final int PLAN_LEFT = 0;
+    private static final int PLAN_RIGHT = 1;
+    private static final int PLAN_BACK = 2;
+    private static final int PLAN_BACK_HANDLING_ENEMY = 3;
+    private static final int PLAN_JUMP = 4;
+    private static final int PLAN_SPEED = 5;
+
+    private final World world;
+    private final ExecutionListener listener;
+    private final long stepLimit;
+    private long steps = 0;
+    private boolean stopWhenDecided = false;
+
+    // Body of the motion loop being planned: a kind and a count or speed per move
+    private int[] planKinds = new int[16];
+    private int[] planValues = new int[16];
+    private int planSize = 0;
+
+    public ProgramRuntime(World world, ExecutionListener listener, long stepLimit) {
+        this.world = world;
+        this.listener = listener;
+        this.stepLimit = stepLimit;
+    }
+
+    /**
+     * Count one executed statement, which takes the World's clock on a tick, stopping the
+     * program once the limit is passed
+     */
+    public void step() {
+        if (stopWhenDecided) {
+            stopIfDecided();
+        }
+        if (++steps > stepLimit) {
+            throw new ExecutionLimitException(stepLimit);
+        }
+        world.getClock().advance(1);
+    }
+
+    /**
+     * Count several executed statements at once, for a RepeatStatement
+     */
+    public void step(int count) {
+        if (stopWhenDecided) {
+            stopIfDecided();
+        }
+        steps += count;
+        if (steps > stepLimit) {
+            throw new ExecutionLimitException(stepLimit);
+        }
+        world.getClock().advance(count);
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getStepLimit() {
+        return stepLimit;
+    }
+
+    /**
+     * Stop the program with a RunDecidedException, before its next statement, once the rest
+     * of it can no longer change whether the level is won
+     */
+    public void setStopWhenDecided(boolean stopWhenDecided) {
+        this.stopWhenDecided = stopWhenDecided;
+    }
+
+    private void stopIfDecided() {
+        WinCondition.Verdict verdict = world.getVerdict();
+        if (verdict != WinCondition.Verdict.OPEN) {
+            throw new RunDecidedException(verdict, steps);
+        }
+    }
+
+    /**
+     * Continue counting from a step count saved earlier
+     */
+    void restoreSteps(long steps) {
+        this.steps = steps;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public void moveLeft() {
+        world.moveLeft();
+        moved("moveLeft");
+    }
+
+    public void moveRight() {
+        world.moveRight();
+        moved("moveRight");
+    }
+
+    public void moveLeft(int times) {
+        world.moveLeft(times);
+        moved("moveLeft");
+    }
+
+    public void moveRight(int times) {
+        world.moveRight(times);
+        moved("moveRight");
+    }
+
+    /**
+     * Move back; handlesEnemy is true inside an if (enemyNear) block that was taken
+     */
+    public void moveBack(boolean handlesEnemy) {
+        world.moveBack();
+        if (handlesEnemy) {
+            world.markHandledEnemy();
+        }
+        moved("moveBack");
+    }
+
+    public void jump() {
+        world.jump();
+        if (listener != null) {
+            listener.onJumped();
+        }
+    }
+
+    /**
+     * Jump several times; the sprite always lands where it started, so one animation does
+     */
+    public void jump(int times) {
+        jump();
+    }
+
+    /**
+     * Shoot and return the index of the target hit, or -1
+     */
+    public int shoot(boolean inLoop) {
+        if (inLoop) {
+            world.markUsedLoop();
+        }
+
+        int hit = world.shoot();
+        if (listener != null) {
+            listener.onShot(hit);
+        }
+        return hit;
+    }
+
+    /**
+     * Shoot several times and return how many shots hit
+     * The sprite does not move in between, so once a shot misses every later one would too.
+     */
+    public int shoot(boolean inLoop, int times) {
+        int hits = 0;
+        for (int i = 0; i < times; i++) {
+            if (shoot(inLoop) < 0) {
+                break;
+            }
+            hits++;
+        }
+        return hits;
+    }
+
+    /**
+     * Set the speed; fromVariable is true when the value came from a defined variable
+     */
+    public void setSpeed(int speed, boolean fromVariable) {
+        world.setSpeed(speed);
+        if (fromVariable) {
+            world.markUsedVariable();
+        }
+        if (listener != null) {
+            listener.onSpeedChanged(world.getSprite().getSpeed());
+        }
+    }
+
+    /* Motion loops: beginMoves(), one plan call per body statement, then runMoves() */
+
+    public void beginMoves() {
+        planSize = 0;
+    }
+
+    public void planMoveLeft(int times) {
+        plan(PLAN_LEFT, times);
+    }
+
+    public void planMoveRight(int times) {
+        plan(PLAN_RIGHT, times);
+    }
+
+    public void planMoveBack(boolean handlesEnemy) {
+        plan(handlesEnemy ? PLAN_BACK_HANDLING_ENEMY : PLAN_BACK, 1);
+    }
+
+    public void planJump() {
+        plan(PLAN_JUMP, 1);
+    }
+
+    public void planSetSpeed(int speed) {
+        plan(PLAN_SPEED, speed);
+    }
+
+    /**
+     * Run the planned body the given number of times
+     * The first pass steps through each move, which records the commands used and leaves
+     * the speed where every later pass starts it. The remaining passes then move the same
+     * way each time, so they are applied as one Motion in constant time. Nothing observes
+     * the sprite between moves (obstacles are only checked once the program ends), so the
+     * intermediate positions can be skipped.
+     */
+    public void runMoves(int times) {
+        if (times <= 0 || planSize == 0) {
+            return;
+        }
+
+        String lastMove = null;
+        boolean jumped = false;
+        boolean speedSet = false;
+        for (int i = 0; i < planSize; i++) {
+            int value = planValues[i];
+            switch (planKinds[i]) {
+                case PLAN_LEFT:
+                    world.moveLeft(value);
+                    lastMove = "moveLeft";
+                    break;
+                case PLAN_RIGHT:
+                    world.moveRight(value);
+                    lastMove = "moveRight";
+                    break;
+                case PLAN_BACK_HANDLING_ENEMY:
+                    world.markHandledEnemy();
+                    world.moveBack();
+                    lastMove = "moveBack";
+                    break;
+                case PLAN_BACK:
+                    world.moveBack();
+                    lastMove = "moveBack";
+                    break;
+                case PLAN_JUMP:
+                    world.jump();
+                    jumped = true;
+                    break;
+                case PLAN_SPEED:
+                    world.setSpeed(value);
+                    speedSet = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (times > 1) {
+            SpriteModel sprite = world.getSprite();
+            Motion motion = planMotion(sprite.getSpeed());
+            sprite.moveTo(motion.repeat(times - 1).apply(sprite.getXPos()));
+        }
+
+        if (listener != null) {
+            if (lastMove != null) {
+                listener.onMoved(lastMove);
+            }
+            if (jumped) {
+                listener.onJumped();
+            }
+            if (speedSet) {
+                listener.onSpeedChanged(world.getSprite().getSpeed());
+            }
+        }
+    }
+
+    /**
+     * Build the Motion of one pass through the plan, starting at the given speed
+     */
+    private Motion planMotion(int speed) {
+        double maxX = world.getMaxX();
+        Motion motion = Motion.identity(maxX);
+        for (int i = 0; i < planSize; i++) {
+            int value = planValues[i];
+            switch (planKinds[i]) {
+                case PLAN_LEFT:
+                    motion = motion.then(Motion.shift(-10.0 * speed * value, maxX));
+                    break;
+                case PLAN_RIGHT:
+                    motion = motion.then(Motion.shift(10.0 * speed * value, maxX));
+                    break;
+                case PLAN_BACK:
+                case PLAN_BACK_HANDLING_ENEMY:
+                    motion = motion.then(Motion.constant(SpriteModel.START_X));
+                    break;
+                case PLAN_SPEED:
+                    if (value > 0 && value <= SpriteModel.MAX_SPEED) {
+                        speed = value;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return motion;
+    }
+
+    private void plan(int kind, int value) {
+        if (planSize == planKinds.length) {
+            planKinds = Arrays.copyOf(planKinds, planSize * 2);
+            planValues = Arrays.copyOf(planValues, planSize * 2);
+        }
+        planKinds[planSize] = kind;
+        planValues[planSize] = value;
+        planSize++;
+    }
+
+    public boolean enemyNear() {
+        return world.isEnemyNear();
+    }
+
+    private void moved(String command) {
+        if (listener != null) {
+            listener.onMoved(command);
+        }
+    }
+}
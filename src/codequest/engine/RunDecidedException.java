@@ -0,0 +1,22 @@
+package codequest.engine;
+
+/**
+ * RunDecidedException - Thrown when the rest of a program can no longer change whether
+ * the level is won, for a runtime asked to stop at that point
+ */
+public class RunDecidedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final WinCondition.Verdict verdict;
+
+    public RunDecidedException(WinCondition.Verdict verdict, long steps) {
+        super("Program stopped after " + steps + " steps: the level was already "
+            + (verdict == WinCondition.Verdict.WON ? "won" : "lost"));
+        this.verdict = verdict;
+    }
+
+    public WinCondition.Verdict getVerdict() {
+        return verdict;
+    }
+}
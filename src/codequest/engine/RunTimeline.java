@@ -0,0 +1,271 @@
+package codequest.engine;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * RunTimeline - What the scene showed at every tick of a run, for scrubbing through it
+ * Each event that changes the scene is one tick, stored as a compact delta: a type byte
+ * and one long of payload. Every KEYFRAME_INTERVAL ticks the whole state is stored as a
+ * keyframe, so seeking to any tick starts at the keyframe before it and applies fewer
+ * than KEYFRAME_INTERVAL deltas, however long the run was.
+ */
+public final class RunTimeline {
+
+    public static final int KEYFRAME_INTERVAL = 64;
+
+    // Ticks recorded per run; a longer run is only recorded up to here
+    public static final int MAX_TICKS = 1_000_000;
+
+    private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+    private static final long[] NO_TARGETS = new long[0];
+
+    // State at tick 0
+    private double startX;
+    private int startSpeed;
+    private long[] startTargets = NO_TARGETS;
+
+    // Delta i moves tick i to tick i + 1
+    private int deltaCount = 0;
+    private byte[] deltaTypes = new byte[256];
+    private long[] deltaPayloads = new long[256]; // position bits, target or speed
+    private boolean truncated = false;
+
+    // A restore puts back targets that no event reports; they are worked out in finish()
+    private int restoreDelta = -1;
+    private long[] restoreTargets = NO_TARGETS;
+
+    // Keyframe k is the state at tick k * KEYFRAME_INTERVAL; built by finish()
+    private int keyframeCount = 0;
+    private double[] keyX = new double[0];
+    private int[] keySpeed = new int[0];
+    private long[][] keyTargets = new long[0][];
+
+    /**
+     * Start recording a run from the scene's current state
+     */
+    public void start(double x, int speed, int targetCount, IntPredicate targetHit) {
+        startX = x;
+        startSpeed = speed;
+        startTargets = bitsOf(targetCount, targetHit);
+        deltaCount = 0;
+        truncated = false;
+        restoreDelta = -1;
+        restoreTargets = NO_TARGETS;
+        keyframeCount = 0;
+    }
+
+    /**
+     * Forget the recorded run
+     */
+    public void clear() {
+        deltaCount = 0;
+        truncated = false;
+        restoreDelta = -1;
+        keyframeCount = 0;
+    }
+
+    /**
+     * Record an event; only events that change what the scene shows become ticks
+     */
+    public void record(GameEvent event) {
+        long payload;
+        switch (event.getType()) {
+            case MOVED:
+            case RESTORED:
+                payload = Double.doubleToRawLongBits(event.getX());
+                break;
+            case JUMPED:
+                payload = 0;
+                break;
+            case SHOT:
+            case SPEED_CHANGED:
+                payload = event.getValue();
+                break;
+            default:
+                return;
+        }
+        if (deltaCount == MAX_TICKS) {
+            truncated = true;
+            return;
+        }
+        if (deltaCount == deltaTypes.length) {
+            deltaTypes = Arrays.copyOf(deltaTypes, deltaCount * 2);
+            deltaPayloads = Arrays.copyOf(deltaPayloads, deltaCount * 2);
+        }
+        if (event.getType() == GameEvent.Type.RESTORED) {
+            restoreDelta = deltaCount;
+        }
+        deltaTypes[deltaCount] = (byte) event.getType().ordinal();
+        deltaPayloads[deltaCount] = payload;
+        deltaCount++;
+    }
+
+    /**
+     * Stop recording and build the keyframes
+     *
+     * @param finalHit which targets are hit at the end of the run
+     */
+    public void finish(int targetCount, IntPredicate finalHit) {
+        // Targets only get hit within a run, so whatever was hit at the end and not by a
+        // shot after the restore was already hit when the restore happened
+        if (restoreDelta >= 0) {
+            restoreTargets = bitsOf(targetCount, finalHit);
+            for (int i = restoreDelta + 1; i < deltaCount; i++) {
+                int target = (int) deltaPayloads[i];
+                if (TYPES[deltaTypes[i]] == GameEvent.Type.SHOT && target >= 0) {
+                    restoreTargets[target / 64] &= ~(1L << (target % 64));
+                }
+            }
+        }
+
+        keyframeCount = deltaCount / KEYFRAME_INTERVAL + 1;
+        keyX = new double[keyframeCount];
+        keySpeed = new int[keyframeCount];
+        keyTargets = new long[keyframeCount][];
+
+        Frame frame = new Frame();
+        frame.set(0, startX, startSpeed, startTargets);
+        for (int k = 0; k < keyframeCount; k++) {
+            if (k > 0) {
+                apply(frame, (k - 1) * KEYFRAME_INTERVAL, k * KEYFRAME_INTERVAL);
+            }
+            keyX[k] = frame.x;
+            keySpeed[k] = frame.speed;
+            // Keyframes share the target bits until a shot changes them
+            long[] previous = k > 0 ? keyTargets[k - 1] : null;
+            keyTargets[k] = previous != null && Arrays.equals(previous, frame.targets)
+                ? previous : frame.targets.clone();
+        }
+    }
+
+    /**
+     * Get the number of ticks; tick 0 is the state before the run
+     */
+    public int getTickCount() {
+        return keyframeCount == 0 ? 0 : deltaCount + 1;
+    }
+
+    /**
+     * Whether the run had more than MAX_TICKS ticks and the rest was not recorded
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Reconstruct the state at a tick into a frame, which can be reused between seeks
+     */
+    public void seek(int tick, Frame frame) {
+        if (tick < 0 || tick >= getTickCount()) {
+            throw new IndexOutOfBoundsException("Tick " + tick + " of " + getTickCount());
+        }
+        int k = tick / KEYFRAME_INTERVAL;
+        frame.set(k * KEYFRAME_INTERVAL, keyX[k], keySpeed[k], keyTargets[k]);
+        apply(frame, k * KEYFRAME_INTERVAL, tick);
+    }
+
+    /**
+     * Apply the deltas that move a frame from one tick to a later one
+     */
+    private void apply(Frame frame, int fromTick, int toTick) {
+        for (int i = fromTick; i < toTick; i++) {
+            GameEvent.Type type = TYPES[deltaTypes[i]];
+            long payload = deltaPayloads[i];
+            switch (type) {
+                case MOVED:
+                    frame.x = Double.longBitsToDouble(payload);
+                    break;
+                case RESTORED:
+                    frame.x = Double.longBitsToDouble(payload);
+                    frame.setTargets(restoreTargets);
+                    break;
+                case SHOT:
+                    if (payload >= 0) {
+                        frame.hit((int) payload);
+                    }
+                    break;
+                case SPEED_CHANGED:
+                    frame.speed = (int) payload;
+                    break;
+                default:
+                    break;
+            }
+            frame.cause = type;
+        }
+        frame.tick = toTick;
+    }
+
+    private static long[] bitsOf(int count, IntPredicate hit) {
+        long[] bits = new long[(count + 63) / 64];
+        for (int i = 0; i < count; i++) {
+            if (hit.test(i)) {
+                bits[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * The scene at one tick
+     */
+    public static final class Frame {
+        private int tick;
+        private double x;
+        private int speed;
+        private long[] targets = NO_TARGETS;
+        private GameEvent.Type cause;
+
+        void set(int tick, double x, int speed, long[] targets) {
+            this.tick = tick;
+            this.x = x;
+            this.speed = speed;
+            setTargets(targets);
+            this.cause = null;
+        }
+
+        void setTargets(long[] bits) {
+            if (targets.length != bits.length) {
+                targets = new long[bits.length];
+            }
+            System.arraycopy(bits, 0, targets, 0, bits.length);
+        }
+
+        void hit(int target) {
+            if (target / 64 < targets.length) {
+                targets[target / 64] |= 1L << (target % 64);
+            }
+        }
+
+        public int getTick() {
+            return tick;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public int getSpeed() {
+            return speed;
+        }
+
+        public boolean isTargetHit(int index) {
+            return index / 64 < targets.length && (targets[index / 64] & (1L << (index % 64))) != 0;
+        }
+
+        public int getTargetsHit() {
+            int hits = 0;
+            for (long word : targets) {
+                hits += Long.bitCount(word);
+            }
+            return hits;
+        }
+
+        /**
+         * Get the type of event that led to this tick, or null for a keyframe's own tick
+         */
+        public GameEvent.Type getCause() {
+            return cause;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package codequest.engine;
+
+/**
+ * SimulationClock - The World's time, counted in ticks instead of seconds
+ * Every statement a program starts takes one tick, and anything that changes over time
+ * (such as the enemy in the conditionals level) is a function of the tick alone. A run
+ * therefore behaves the same however fast it goes, on whichever thread, and a headless
+ * grader can get through the ticks as quickly as it likes.
+ */
+public final class SimulationClock {
+
+    private long tick = 0;
+
+    public long getTick() {
+        return tick;
+    }
+
+    void advance(long ticks) {
+        tick += ticks;
+    }
+
+    void setTick(long tick) {
+        this.tick = tick;
+    }
+}
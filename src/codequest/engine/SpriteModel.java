@@ -0,0 +1,111 @@
+package codequest.engine;
+
+/**
+ * SpriteModel - Position and speed of the player character without any rendering
+ * GameSprite animates on top of this so the game and headless grading move identically
+ */
+public class SpriteModel {
+
+    public static final double START_X = 50;
+    public static final double START_Y = 200;
+    public static final int DEFAULT_SPEED = 5;
+    public static final int MAX_SPEED = 20;
+
+    private double xPos = START_X;
+    private double yPos = START_Y;
+    private int speed = DEFAULT_SPEED;
+
+    /**
+     * Move left by speed * 10, stopping at the left edge
+     * Returns false if the sprite was already at the edge and did not move
+     */
+    public boolean moveLeft() {
+        if (xPos > 0) {
+            xPos -= speed * 10;
+
+            // Make sure we don't go off screen
+            if (xPos < 0) {
+                xPos = 0;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move right by speed * 10, stopping at maxX
+     * Returns false if the sprite was already at the edge and did not move
+     */
+    public boolean moveRight(double maxX) {
+        if (xPos < maxX) {
+            xPos += speed * 10;
+
+            // Make sure we don't go off screen
+            if (xPos > maxX) {
+                xPos = maxX;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move left the given number of times in one step
+     * Each move stops at the edge, so the result is the total distance clamped to 0.
+     */
+    public boolean moveLeft(int times) {
+        if (times > 0 && xPos > 0) {
+            xPos = Math.max(0, xPos - (double) times * speed * 10);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move right the given number of times in one step, stopping at maxX
+     */
+    public boolean moveRight(double maxX, int times) {
+        if (times > 0 && xPos < maxX) {
+            xPos = Math.min(maxX, xPos + (double) times * speed * 10);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Put the sprite at a position computed in closed form, such as by a Motion
+     */
+    void moveTo(double x) {
+        xPos = x;
+    }
+
+    /**
+     * Return to the starting column
+     */
+    public void moveBack() {
+        xPos = START_X;
+    }
+
+    /**
+     * Set the speed, ignoring values outside 1..MAX_SPEED
+     */
+    public boolean setSpeed(int newSpeed) {
+        if (newSpeed > 0 && newSpeed <= MAX_SPEED) {
+            this.speed = newSpeed;
+            return true;
+        }
+        return false;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public double getXPos() {
+        return xPos;
+    }
+
+    public double getYPos() {
+        return yPos;
+    }
+}
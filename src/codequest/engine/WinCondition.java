@@ -0,0 +1,301 @@
+package codequest.engine;
+
+import codequest.lang.Command;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * WinCondition - What a level asks of a program, built from small predicates
+ * Each predicate names the parts of the World it reads, so a World only re-tests the
+ * ones whose inputs changed since it last asked. Predicates over counts and flags that
+ * only grow during a run are sticky: once they hold they keep holding. A condition made
+ * only of sticky predicates is won for good as soon as it holds, and one that needs
+ * something the level cannot provide, such as a command it does not accept, is lost
+ * before the program starts, so a grader can stop the run early in both cases.
+ */
+public abstract class WinCondition {
+
+    // The parts of a World a predicate reads
+    static final int POSITION = 1;
+    static final int TARGETS = 2;
+    static final int COMMANDS = 4;
+    static final int CONSTRUCTS = 8;
+
+    /**
+     * Whether a run can still change the outcome
+     */
+    public enum Verdict {
+        OPEN, // depends on what the rest of the program does
+        WON,  // holds and nothing the program does can undo it
+        LOST  // can never hold in this level
+    }
+
+    private final String description;
+
+    private WinCondition(String description) {
+        this.description = description;
+    }
+
+    /**
+     * The sprite is inside the level's goal area
+     */
+    public static WinCondition inGoal() {
+        return new Leaf("in goal", POSITION, false, World::isInGoal, World::hasGoal);
+    }
+
+    /**
+     * Every target in the level has been hit
+     */
+    public static WinCondition allTargetsHit() {
+        return new Leaf("all targets hit", TARGETS, true,
+            world -> world.getTargetsHit() >= world.getTargetCount(), world -> true);
+    }
+
+    /**
+     * At least count targets have been hit
+     */
+    public static WinCondition targetsHit(int count) {
+        return new Leaf(count + " targets hit", TARGETS, true,
+            world -> world.getTargetsHit() >= count, world -> world.getTargetCount() >= count);
+    }
+
+    /**
+     * The program has used a construct, such as a loop
+     */
+    public static WinCondition used(Construct construct) {
+        return new Leaf("used " + construct, CONSTRUCTS, true, world -> world.hasUsed(construct), world -> true);
+    }
+
+    /**
+     * The program has run a command at least once
+     */
+    public static WinCondition executed(Command command) {
+        return new Leaf(command.getName() + "() executed", COMMANDS, true,
+            world -> world.hasExecuted(command), world -> world.isCommandAllowed(command));
+    }
+
+    /**
+     * Every one of the conditions holds
+     */
+    public static WinCondition allOf(WinCondition... conditions) {
+        return new AllOf(conditions);
+    }
+
+    /**
+     * A condition no program can meet, for a world without one
+     */
+    static WinCondition never() {
+        return new Leaf("never", 0, false, world -> false, world -> false);
+    }
+
+    /**
+     * Test the condition against a World from scratch
+     */
+    public abstract boolean test(World world);
+
+    /**
+     * Add the predicates this condition is made of to the list
+     */
+    abstract void collectLeaves(List<Leaf> leaves);
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    /**
+     * One predicate over the parts of the World it reads
+     */
+    static final class Leaf extends WinCondition {
+        final int reads;
+        final boolean sticky;
+        private final Predicate<World> test;
+        private final Predicate<World> possible;
+
+        Leaf(String description, int reads, boolean sticky, Predicate<World> test, Predicate<World> possible) {
+            super(description);
+            this.reads = reads;
+            this.sticky = sticky;
+            this.test = test;
+            this.possible = possible;
+        }
+
+        @Override
+        public boolean test(World world) {
+            return test.test(world);
+        }
+
+        /**
+         * Whether the predicate can hold at all in the World's level
+         */
+        boolean isPossible(World world) {
+            return possible.test(world);
+        }
+
+        @Override
+        void collectLeaves(List<Leaf> leaves) {
+            leaves.add(this);
+        }
+    }
+
+    private static final class AllOf extends WinCondition {
+        private final WinCondition[] conditions;
+
+        AllOf(WinCondition[] conditions) {
+            super(describe(conditions));
+            this.conditions = conditions.clone();
+        }
+
+        private static String describe(WinCondition[] conditions) {
+            StringBuilder text = new StringBuilder();
+            for (WinCondition condition : conditions) {
+                text.append(text.length() == 0 ? "" : " and ").append(condition);
+            }
+            return text.toString();
+        }
+
+        @Override
+        public boolean test(World world) {
+            for (WinCondition condition : conditions) {
+                if (!condition.test(world)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void collectLeaves(List<Leaf> leaves) {
+            for (WinCondition condition : conditions) {
+                condition.collectLeaves(leaves);
+            }
+        }
+    }
+
+    /**
+     * Keeps the value of every predicate of one World's condition up to date
+     * Before answering, the parts of the World the predicates read are compared with what
+     * they were last time, and only predicates reading a part that changed are tested
+     * again. Restoring a saved state is seen as a change like any other.
+     */
+    static final class Tracker {
+        private final Leaf[] leaves;
+        private final boolean[] met;
+        private int unmet;
+        private final boolean allSticky;
+
+        // Worked out on first use, once the level's geometry is in place
+        private boolean primed = false;
+        private boolean[] possible;
+        private boolean canEndEarly;
+
+        // What each part of the World was when the predicates were last tested
+        private double lastX;
+        private double lastY;
+        private int lastTargetsHit;
+        private int lastCommands;
+        private int lastConstructs;
+
+        Tracker(WinCondition condition) {
+            List<Leaf> collected = new ArrayList<>();
+            condition.collectLeaves(collected);
+            leaves = collected.toArray(new Leaf[0]);
+            met = new boolean[leaves.length];
+            unmet = leaves.length;
+
+            boolean sticky = true;
+            for (Leaf leaf : leaves) {
+                sticky &= leaf.sticky;
+            }
+            allSticky = sticky;
+        }
+
+        boolean isMet(World world) {
+            if (!primed) {
+                prime(world);
+            } else {
+                update(world, changes(world));
+            }
+            return unmet == 0;
+        }
+
+        boolean canEndEarly(World world) {
+            if (!primed) {
+                prime(world);
+            }
+            return canEndEarly;
+        }
+
+        Verdict getVerdict(World world) {
+            boolean holds = isMet(world);
+            if (!canEndEarly) {
+                return Verdict.OPEN;
+            }
+            if (holds) {
+                return allSticky ? Verdict.WON : Verdict.OPEN;
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if (!met[i] && !possible[i]) {
+                    return Verdict.LOST;
+                }
+            }
+            return Verdict.OPEN;
+        }
+
+        private void prime(World world) {
+            primed = true;
+            possible = new boolean[leaves.length];
+            boolean anyImpossible = false;
+            for (int i = 0; i < leaves.length; i++) {
+                possible[i] = leaves[i].isPossible(world);
+                anyImpossible |= !possible[i];
+            }
+            canEndEarly = allSticky || anyImpossible;
+            changes(world);
+            update(world, ~0);
+        }
+
+        /**
+         * Get the parts of the World that changed since the last call, and remember them
+         */
+        private int changes(World world) {
+            int changed = 0;
+            double x = world.getSprite().getXPos();
+            double y = world.getSprite().getYPos();
+            if (x != lastX || y != lastY) {
+                lastX = x;
+                lastY = y;
+                changed |= POSITION;
+            }
+            if (world.getTargetsHit() != lastTargetsHit) {
+                lastTargetsHit = world.getTargetsHit();
+                changed |= TARGETS;
+            }
+            if (world.getExecutedCommands() != lastCommands) {
+                lastCommands = world.getExecutedCommands();
+                changed |= COMMANDS;
+            }
+            if (world.getConstructs() != lastConstructs) {
+                lastConstructs = world.getConstructs();
+                changed |= CONSTRUCTS;
+            }
+            return changed;
+        }
+
+        private void update(World world, int changed) {
+            if (changed == 0) {
+                return;
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if ((leaves[i].reads & changed) != 0 || changed == ~0) {
+                    boolean value = leaves[i].test(world);
+                    if (value != met[i]) {
+                        met[i] = value;
+                        unmet += value ? -1 : 1;
+                    }
+                }
+            }
+        }
+    }
+}
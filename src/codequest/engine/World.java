@@ -0,0 +1,465 @@
+package codequest.engine;
+
+import codequest.lang.Command;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * World - Headless model of one level: the sprite, goal, targets, obstacles and progress flags
+ * Built by LevelWorlds with the same geometry the JavaFX levels draw
+ */
+public class World {
+
+    // Sprite layer width (window width minus padding) minus the sprite's width
+    public static final double DEFAULT_MAX_X = 1024 - 20 - 80;
+
+    /**
+     * How shoot() picks the target it hits
+     */
+    public enum Targeting {
+        SEQUENTIAL, // Always the next target in order (LoopsLevel)
+        NEAREST     // The closest unhit target within range (FreeRoamLevel)
+    }
+
+    private final int levelId;
+    private final Set<Command> commands;
+    private final int commandMask; // getBit() of each allowed command
+    private final SpriteModel sprite = new SpriteModel();
+    private double maxX = DEFAULT_MAX_X;
+
+    // The goal, targets, obstacles and enemy; targets have consecutive ids from firstTarget
+    private final EntityStore entities = new EntityStore();
+    private int goal = -1;
+    private boolean goalChecksY = true;
+    private int firstTarget = 0;
+    private int targetCount = 0;
+    private int targetsHit = 0;
+    private Targeting targeting = Targeting.SEQUENTIAL;
+    private double targetRange = 300;
+    private double obstacleRadius = 30;
+
+    // Time, and the enemy's position at each tick of a repeating pattern
+    private final SimulationClock clock = new SimulationClock();
+    private boolean[] enemyPattern = new boolean[0];
+
+    // Progress flags
+    private int executedCommands = 0; // getBit() of each command run so far
+    private boolean usedVariable = false;
+    private boolean usedConditional = false;
+    private boolean handledEnemy = false;
+    private boolean usedLoop = false;
+
+    private WinCondition winCondition = WinCondition.never();
+    private WinCondition.Tracker winTracker = new WinCondition.Tracker(winCondition);
+
+    public World(int levelId, Set<Command> commands) {
+        this.levelId = levelId;
+        this.commands = Collections.unmodifiableSet(commands.isEmpty()
+            ? EnumSet.noneOf(Command.class) : EnumSet.copyOf(commands));
+        this.commandMask = Command.mask(commands);
+    }
+
+    /* Level setup, used by LevelWorlds */
+
+    void setGoal(double x, double y, double width, double height, boolean checksY) {
+        goal = entities.add(EntityStore.Kind.GOAL, x, y, width, height);
+        goalChecksY = checksY;
+    }
+
+    void setTargets(double[] xs, double[] ys, double size, Targeting targeting) {
+        firstTarget = entities.size();
+        targetCount = xs.length;
+        for (int i = 0; i < xs.length; i++) {
+            entities.add(EntityStore.Kind.TARGET, xs[i], ys[i], size, size);
+        }
+        this.targeting = targeting;
+    }
+
+    void setObstacles(double[] xs, double y, double width, double height) {
+        for (double x : xs) {
+            entities.add(EntityStore.Kind.OBSTACLE, x, y, width, height);
+        }
+    }
+
+    /**
+     * Add an enemy; it is only drawn, the enemyNear condition comes from the enemy pattern
+     */
+    void addEnemy(double x, double y, double size) {
+        entities.add(EntityStore.Kind.ENEMY, x, y, size, size);
+    }
+
+    /**
+     * Set the rightmost x the sprite can move to, for levels wider than the window
+     */
+    void setMaxX(double maxX) {
+        this.maxX = maxX;
+    }
+
+    void setEnemyPattern(boolean... nearAtTick) {
+        enemyPattern = nearAtTick.clone();
+    }
+
+    void setWinCondition(WinCondition winCondition) {
+        this.winCondition = winCondition;
+        this.winTracker = new WinCondition.Tracker(winCondition);
+    }
+
+    /* Actions */
+
+    public boolean moveLeft() {
+        executedCommands |= Command.MOVE_LEFT.getBit();
+        return sprite.moveLeft();
+    }
+
+    public boolean moveRight() {
+        executedCommands |= Command.MOVE_RIGHT.getBit();
+        return sprite.moveRight(maxX);
+    }
+
+    /**
+     * Move left several times at the current speed, as one displacement
+     */
+    public boolean moveLeft(int times) {
+        executedCommands |= Command.MOVE_LEFT.getBit();
+        return sprite.moveLeft(times);
+    }
+
+    /**
+     * Move right several times at the current speed, as one displacement
+     */
+    public boolean moveRight(int times) {
+        executedCommands |= Command.MOVE_RIGHT.getBit();
+        return sprite.moveRight(maxX, times);
+    }
+
+    public void moveBack() {
+        executedCommands |= Command.MOVE_BACK.getBit();
+        sprite.moveBack();
+    }
+
+    public void jump() {
+        // The jump animation always lands back where it started
+        executedCommands |= Command.JUMP.getBit();
+    }
+
+    public boolean setSpeed(int speed) {
+        executedCommands |= Command.SET_SPEED.getBit();
+        return sprite.setSpeed(speed);
+    }
+
+    /**
+     * Fire a shot and return the index of the target it hit, or -1 for a miss
+     */
+    public int shoot() {
+        executedCommands |= Command.SHOOT.getBit();
+
+        int hit = -1;
+        if (targeting == Targeting.SEQUENTIAL) {
+            if (targetsHit < targetCount) {
+                hit = targetsHit;
+            }
+        } else {
+            int nearest = entities.findNearest(EntityStore.Kind.TARGET, EntityStore.HIT, sprite.getXPos(), targetRange);
+            if (nearest >= 0) {
+                hit = nearest - firstTarget;
+            }
+        }
+
+        if (hit >= 0) {
+            entities.setFlag(firstTarget + hit, EntityStore.HIT, true);
+            targetsHit++;
+        }
+        return hit;
+    }
+
+    /**
+     * Send the sprite back to the start if it ended up on an obstacle
+     * Returns true if there was a collision
+     */
+    public boolean checkObstacleCollisions() {
+        if (entities.findWithin(EntityStore.Kind.OBSTACLE, sprite.getXPos(), obstacleRadius) >= 0) {
+            sprite.moveBack();
+            return true;
+        }
+        return false;
+    }
+
+    /* Progress tracking */
+
+    void markUsedVariable() {
+        usedVariable = true;
+    }
+
+    void markHandledEnemy() {
+        usedConditional = true;
+        handledEnemy = true;
+    }
+
+    void markUsedLoop() {
+        usedLoop = true;
+    }
+
+    /* Snapshots */
+
+    /**
+     * Everything a program can change, captured so a run can later resume from here
+     */
+    public static final class State {
+        private final double xPos;
+        private final int speed;
+        private final boolean[] targetHit;
+        private final int targetsHit;
+        private final long tick;
+        private final int executedCommands;
+        private final boolean usedVariable;
+        private final boolean usedConditional;
+        private final boolean handledEnemy;
+        private final boolean usedLoop;
+
+        private State(World world) {
+            xPos = world.sprite.getXPos();
+            speed = world.sprite.getSpeed();
+            targetHit = new boolean[world.targetCount];
+            for (int i = 0; i < targetHit.length; i++) {
+                targetHit[i] = world.isTargetHit(i);
+            }
+            targetsHit = world.targetsHit;
+            tick = world.clock.getTick();
+            executedCommands = world.executedCommands;
+            usedVariable = world.usedVariable;
+            usedConditional = world.usedConditional;
+            handledEnemy = world.handledEnemy;
+            usedLoop = world.usedLoop;
+        }
+
+        /**
+         * Describe the state as text; equal states describe the same
+         */
+        String describe() {
+            return xPos + "," + speed + "," + Arrays.toString(targetHit) + "," + tick + ","
+                + executedCommands + "," + usedVariable + "," + usedConditional + "," + handledEnemy + ","
+                + usedLoop;
+        }
+    }
+
+    public State saveState() {
+        return new State(this);
+    }
+
+    /**
+     * Put the world back into a saved state; the state must come from this level
+     */
+    public void restoreState(State state) {
+        sprite.moveTo(state.xPos);
+        sprite.setSpeed(state.speed);
+        for (int i = 0; i < targetCount; i++) {
+            entities.setFlag(firstTarget + i, EntityStore.HIT, state.targetHit[i]);
+        }
+        targetsHit = state.targetsHit;
+        clock.setTick(state.tick);
+        executedCommands = state.executedCommands;
+        usedVariable = state.usedVariable;
+        usedConditional = state.usedConditional;
+        handledEnemy = state.handledEnemy;
+        usedLoop = state.usedLoop;
+    }
+
+    /**
+     * Put the world back into the state of a snapshot taken from it
+     */
+    public void restoreSnapshot(WorldSnapshot snapshot) {
+        sprite.moveTo(snapshot.getXPos());
+        sprite.setSpeed(snapshot.getSpeed());
+        for (int i = 0; i < targetCount; i++) {
+            entities.setFlag(firstTarget + i, EntityStore.HIT, snapshot.isTargetHit(i));
+        }
+        targetsHit = entities.count(EntityStore.Kind.TARGET, EntityStore.HIT);
+        clock.setTick(snapshot.getTick());
+        executedCommands = snapshot.getExecutedCommands();
+        usedVariable = snapshot.hasUsedVariable();
+        usedConditional = snapshot.hasUsedConditional();
+        handledEnemy = snapshot.hasHandledEnemy();
+        usedLoop = snapshot.hasUsedLoop();
+    }
+
+    /* Queries */
+
+    public boolean isInGoal() {
+        if (goal < 0) {
+            return false;
+        }
+        double x = sprite.getXPos();
+        double y = sprite.getYPos();
+        double goalX = entities.getX(goal);
+        double goalY = entities.getY(goal);
+        boolean inX = x >= goalX && x <= goalX + entities.getWidth(goal);
+        boolean inY = y >= goalY && y <= goalY + entities.getHeight(goal);
+        return inX && (inY || !goalChecksY);
+    }
+
+    public boolean hasObstacles() {
+        return entities.first(EntityStore.Kind.OBSTACLE) >= 0;
+    }
+
+    public Targeting getTargeting() {
+        return targeting;
+    }
+
+    public boolean hasGoal() {
+        return goal >= 0;
+    }
+
+    /**
+     * Whether the level's win condition holds, re-testing only what changed since last asked
+     */
+    public boolean isComplete() {
+        return winTracker.isMet(this);
+    }
+
+    /**
+     * Whether the rest of a program could still change isComplete()
+     */
+    public WinCondition.Verdict getVerdict() {
+        return winTracker.getVerdict(this);
+    }
+
+    /**
+     * Whether a run could be stopped early by getVerdict(), for a level whose condition is
+     * all counts and flags or asks for something the level cannot provide
+     */
+    boolean canEndEarly() {
+        return winTracker.canEndEarly(this);
+    }
+
+    public WinCondition getWinCondition() {
+        return winCondition;
+    }
+
+    /**
+     * Whether this level accepts a command; null, for a name that is not a command, never is
+     */
+    public boolean isCommandAllowed(Command command) {
+        return command != null && (commandMask & command.getBit()) != 0;
+    }
+
+    /**
+     * Get the commands this level accepts
+     */
+    public Set<Command> getCommands() {
+        return commands;
+    }
+
+    int getExecutedCommands() {
+        return executedCommands;
+    }
+
+    public boolean hasExecuted(Command command) {
+        return (executedCommands & command.getBit()) != 0;
+    }
+
+    public int getLevelId() {
+        return levelId;
+    }
+
+    public SpriteModel getSprite() {
+        return sprite;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get how close a target has to be to the sprite for a NEAREST shot to hit it
+     */
+    double getTargetRange() {
+        return targetRange;
+    }
+
+    /**
+     * Get how close to an obstacle the sprite can end without being sent back
+     */
+    double getObstacleRadius() {
+        return obstacleRadius;
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * Get the entity id of a target from its index, the number carried by shots
+     */
+    public int getTargetEntity(int index) {
+        return firstTarget + index;
+    }
+
+    /**
+     * Get the level's entities; only read them while no program is running on this World
+     */
+    public EntityStore getEntities() {
+        return entities;
+    }
+
+    public int getTargetsHit() {
+        return targetsHit;
+    }
+
+    public boolean isTargetHit(int index) {
+        return entities.hasFlag(firstTarget + index, EntityStore.HIT);
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    public boolean isEnemyNear() {
+        return isEnemyNearAt(clock.getTick());
+    }
+
+    /**
+     * Get the number of ticks after which the enemy repeats, or 0 without an enemy
+     */
+    int getEnemyPeriod() {
+        return enemyPattern.length;
+    }
+
+    /**
+     * Whether the enemy is near at a tick; levels without an enemy never have it near
+     */
+    public boolean isEnemyNearAt(long tick) {
+        return enemyPattern.length > 0 && enemyPattern[(int) (tick % enemyPattern.length)];
+    }
+
+    public boolean hasUsed(Construct construct) {
+        return (getConstructs() & (1 << construct.ordinal())) != 0;
+    }
+
+    /**
+     * Get the constructs used so far, one bit per Construct ordinal
+     */
+    int getConstructs() {
+        return (usedVariable ? 1 << Construct.VARIABLE.ordinal() : 0)
+            | (usedConditional ? 1 << Construct.CONDITIONAL.ordinal() : 0)
+            | (handledEnemy ? 1 << Construct.ENEMY_CHECK.ordinal() : 0)
+            | (usedLoop ? 1 << Construct.LOOP.ordinal() : 0);
+    }
+
+    public boolean hasUsedVariable() {
+        return usedVariable;
+    }
+
+    public boolean hasUsedConditional() {
+        return usedConditional;
+    }
+
+    public boolean hasHandledEnemy() {
+        return handledEnemy;
+    }
+
+    public boolean hasUsedLoop() {
+        return usedLoop;
+    }
+}
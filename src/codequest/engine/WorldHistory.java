@@ -0,0 +1,57 @@
+package codequest.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WorldHistory - A WorldSnapshot before every statement of a run, for stepping backwards
+ * Filled by the Interpreter while it runs and read once the run is over. Restoring a
+ * snapshot puts the World back as it was without running anything again.
+ */
+public class WorldHistory {
+
+    // Snapshots kept per run; a run longer than this is only recorded up to here
+    public static final int MAX_SNAPSHOTS = 100_000;
+
+    private final List<WorldSnapshot> snapshots = new ArrayList<>();
+    private boolean truncated = false;
+
+    /**
+     * Record the state before a statement, or line -1 for the state after the last one
+     */
+    void record(World world, int line, long steps, int[] values, boolean[] defined) {
+        if (snapshots.size() >= MAX_SNAPSHOTS) {
+            truncated = true;
+            return;
+        }
+        WorldSnapshot previous = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+        snapshots.add(WorldSnapshot.capture(world, line, steps, values, defined, previous));
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    public WorldSnapshot get(int index) {
+        return snapshots.get(index);
+    }
+
+    /**
+     * Whether the run went on past MAX_SNAPSHOTS statements and the rest was not recorded
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void clear() {
+        snapshots.clear();
+        truncated = false;
+    }
+
+    /**
+     * Put the World back to how it was at one snapshot
+     */
+    public void restore(int index, World world) {
+        world.restoreSnapshot(snapshots.get(index));
+    }
+}
@@ -0,0 +1,219 @@
+package codequest.engine;
+
+import java.util.Arrays;
+
+/**
+ * WorldSnapshot - The World and the variable frame just before one statement ran
+ * Consecutive snapshots share every part that did not change. The target bits, the
+ * progress flags and each chunk of the variable frame are immutable, and a new copy is
+ * only made of the parts the statement changed. A long run therefore costs one small
+ * node per statement plus whatever the program actually changed.
+ */
+public final class WorldSnapshot {
+
+    // Variable slots per shared chunk of the frame
+    private static final int CHUNK = 32;
+
+    private static final long[] NO_TARGETS = new long[0];
+    private static final int[][] NO_VALUES = new int[0][];
+    private static final int[] NO_DEFINED = new int[0];
+
+    private final int line;
+    private final long steps;
+    private final long tick;
+    private final double xPos;
+    private final int speed;
+    private final long[] targets;
+    private final Progress progress;
+    private final int[][] values;   // chunks of CHUNK slots
+    private final int[] defined;    // one bit per slot, a mask per chunk
+
+    private WorldSnapshot(int line, long steps, long tick, double xPos, int speed, long[] targets, Progress progress,
+            int[][] values, int[] defined) {
+        this.line = line;
+        this.steps = steps;
+        this.tick = tick;
+        this.xPos = xPos;
+        this.speed = speed;
+        this.targets = targets;
+        this.progress = progress;
+        this.values = values;
+        this.defined = defined;
+    }
+
+    /**
+     * Capture the World and frame, reusing whatever is unchanged since previous
+     *
+     * @param previous the snapshot taken before this one in the same run, or null
+     */
+    static WorldSnapshot capture(World world, int line, long steps, int[] frameValues, boolean[] frameDefined,
+            WorldSnapshot previous) {
+        long[] targets = previous != null ? previous.targets : NO_TARGETS;
+        Progress progress = previous != null ? previous.progress : null;
+        int[][] values = previous != null ? previous.values : NO_VALUES;
+        int[] defined = previous != null ? previous.defined : NO_DEFINED;
+
+        for (int i = 0; i < world.getTargetCount(); i++) {
+            if (world.isTargetHit(i) != isHit(targets, i)) {
+                targets = targetBits(world);
+                break;
+            }
+        }
+        if (progress == null || !progress.matches(world)) {
+            progress = new Progress(world);
+        }
+
+        // Replace only the chunks of the frame that differ
+        int chunks = (frameValues.length + CHUNK - 1) / CHUNK;
+        int[][] newValues = null;
+        int[] newDefined = null;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * CHUNK;
+            int to = Math.min(from + CHUNK, frameValues.length);
+            int mask = 0;
+            for (int slot = from; slot < to; slot++) {
+                if (frameDefined[slot]) {
+                    mask |= 1 << (slot - from);
+                }
+            }
+            boolean sameMask = chunk < defined.length && defined[chunk] == mask;
+            boolean sameValues = chunk < values.length
+                && Arrays.equals(values[chunk], 0, values[chunk].length, frameValues, from, to);
+            if (!sameValues) {
+                if (newValues == null) {
+                    newValues = Arrays.copyOf(values, chunks);
+                }
+                newValues[chunk] = Arrays.copyOfRange(frameValues, from, to);
+            }
+            if (!sameMask) {
+                if (newDefined == null) {
+                    newDefined = Arrays.copyOf(defined, chunks);
+                }
+                newDefined[chunk] = mask;
+            }
+        }
+        if (newValues != null) {
+            values = newValues;
+        }
+        if (newDefined != null) {
+            defined = newDefined;
+        }
+
+        SpriteModel sprite = world.getSprite();
+        return new WorldSnapshot(line, steps, world.getClock().getTick(), sprite.getXPos(), sprite.getSpeed(), targets, progress, values, defined);
+    }
+
+    private static long[] targetBits(World world) {
+        long[] bits = new long[(world.getTargetCount() + 63) / 64];
+        for (int i = 0; i < world.getTargetCount(); i++) {
+            if (world.isTargetHit(i)) {
+                bits[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Get the line of the statement about to run, or -1 once the program has ended
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Get how many statements had run when the snapshot was taken
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the World's clock when the snapshot was taken
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public double getXPos() {
+        return xPos;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public boolean isTargetHit(int index) {
+        return isHit(targets, index);
+    }
+
+    private static boolean isHit(long[] bits, int index) {
+        return index / 64 < bits.length && (bits[index / 64] & (1L << (index % 64))) != 0;
+    }
+
+    public int getTargetsHit() {
+        int hits = 0;
+        for (long word : targets) {
+            hits += Long.bitCount(word);
+        }
+        return hits;
+    }
+
+    public boolean isDefined(int slot) {
+        int chunk = slot / CHUNK;
+        return chunk < defined.length && (defined[chunk] & (1 << (slot % CHUNK))) != 0;
+    }
+
+    /**
+     * Get a variable's value; only meaningful when isDefined(slot)
+     */
+    public int getValue(int slot) {
+        int chunk = slot / CHUNK;
+        return chunk < values.length ? values[chunk][slot % CHUNK] : 0;
+    }
+
+    int getExecutedCommands() {
+        return progress.executedCommands;
+    }
+
+    boolean hasUsedVariable() {
+        return progress.usedVariable;
+    }
+
+    boolean hasUsedConditional() {
+        return progress.usedConditional;
+    }
+
+    boolean hasHandledEnemy() {
+        return progress.handledEnemy;
+    }
+
+    boolean hasUsedLoop() {
+        return progress.usedLoop;
+    }
+
+    /**
+     * The flags and executed commands, which change far less often than the position
+     */
+    private static final class Progress {
+        final int executedCommands;
+        final boolean usedVariable;
+        final boolean usedConditional;
+        final boolean handledEnemy;
+        final boolean usedLoop;
+
+        Progress(World world) {
+            executedCommands = world.getExecutedCommands();
+            usedVariable = world.hasUsedVariable();
+            usedConditional = world.hasUsedConditional();
+            handledEnemy = world.hasHandledEnemy();
+            usedLoop = world.hasUsedLoop();
+        }
+
+        boolean matches(World world) {
+            return usedVariable == world.hasUsedVariable()
+                && usedConditional == world.hasUsedConditional() && handledEnemy == world.hasHandledEnemy()
+                && usedLoop == world.hasUsedLoop()
+                && executedCommands == world.getExecutedCommands();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package codequest.grading;
+
+import codequest.lang.Parser;
+import codequest.lang.Program;
+import codequest.lang.ProgramHash;
+
+/**
+ * CachingGrader - Grader that reuses results for programs it has already seen
+ * Submissions are keyed by the hash of their canonical form, so copies that differ
+ * only in comments or whitespace are graded once.
+ */
+public class CachingGrader implements Grader {
+
+    private final HeadlessGrader grader;
+    private final ResultCache cache;
+
+    public CachingGrader(HeadlessGrader grader, ResultCache cache) {
+        this.grader = grader;
+        this.cache = cache;
+    }
+
+    @Override
+    public GradeResult grade(int levelId, String program) {
+        Program parsed = Parser.parse(program);
+        String hash = ProgramHash.hash(parsed);
+
+        GradeResult result = cache.get(levelId, hash);
+        if (result == null) {
+            result = grader.grade(levelId, parsed);
+
+            // Unknown levels are cheap to reject and not worth a cache slot
+            if (result.getStatus() != GradeResult.Status.ERROR) {
+                cache.put(levelId, hash, result);
+            }
+        }
+        return result;
+    }
+
+    public ResultCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,61 @@
+package codequest.grading;
+
+/**
+ * GradeResult - Outcome of grading one submission
+ */
+public class GradeResult {
+
+    public enum Status {
+        PASSED, FAILED, ERROR
+    }
+
+    private final Status status;
+    private final long steps;
+    private final double finalX;
+    private final String message;
+
+    public GradeResult(Status status, long steps, double finalX, String message) {
+        this.status = status;
+        this.steps = steps;
+        this.finalX = finalX;
+        this.message = message;
+    }
+
+    /**
+     * Create a result for a submission that could not be graded at all
+     */
+    public static GradeResult error(String message) {
+        return new GradeResult(Status.ERROR, 0, 0, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isPassed() {
+        return status == Status.PASSED;
+    }
+
+    /**
+     * Get the number of statements the program executed
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the sprite's X position when the program finished
+     */
+    public double getFinalX() {
+        return finalX;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return status + " (steps: " + steps + ", x: " + finalX + ")" + (message.isEmpty() ? "" : " " + message);
+    }
+}
@@ -0,0 +1,13 @@
+package codequest.grading;
+
+/**
+ * Grader - Decides whether a program completes a level
+ * Implementations must be safe to call from several worker threads at once
+ */
+public interface Grader {
+
+    /**
+     * Grade a program for the given 1-based level number
+     */
+    GradeResult grade(int levelId, String program);
+}
@@ -0,0 +1,144 @@
+package codequest.grading;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GradingClient - Blocking client for GradingDaemon
+ * Requests can be pipelined: submit() several, then collect results with nextResponse().
+ * The main method is a load-test driver for running client and daemon on one machine.
+ */
+public class GradingClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(GradingProtocol.LENGTH_BYTES);
+    private int nextRequestId = 1;
+
+    public GradingClient(Path socketPath) throws IOException {
+        channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socketPath));
+    }
+
+    /**
+     * Send a request without waiting for its result; returns the request id
+     */
+    public int submit(int levelId, String program) throws IOException {
+        int requestId = nextRequestId++;
+        ByteBuffer frame = GradingProtocol.encodeRequest(requestId, levelId, program);
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        return requestId;
+    }
+
+    /**
+     * Block until the next result arrives; results may come back in any order
+     */
+    public GradingProtocol.Response nextResponse() throws IOException {
+        lengthBuffer.clear();
+        readFully(lengthBuffer);
+        lengthBuffer.flip();
+        int length = lengthBuffer.getInt();
+        GradingProtocol.checkFrameLength(length);
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(body);
+        body.flip();
+        return GradingProtocol.decodeResponse(body);
+    }
+
+    /**
+     * Grade one program and wait for its result
+     */
+    public GradeResult grade(int levelId, String program) throws IOException {
+        int requestId = submit(levelId, program);
+        GradingProtocol.Response response;
+        do {
+            response = nextResponse();
+        } while (response.requestId != requestId);
+        return response.result;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Daemon closed the connection");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Sample solutions used for load testing, one per level
+    private static final String[] SAMPLE_PROGRAMS = {
+        "moveLeft();\njump();\n",
+        "speed = 20;\nsetSpeed(speed);\nmoveRight();\nmoveRight();\n",
+        "if (enemyNear) {\n    moveBack();\n}\nfor (int i = 0; i < 9; i++) {\n    moveRight();\n}\n",
+        "for (int i = 0; i < 3; i++) {\n    shoot();\n}\nmoveRight();\n",
+        "speed = 10;\nsetSpeed(speed);\nfor (int i = 0; i < 4; i++) {\n    shoot();\n    moveRight();\n}\nmoveRight();\n"
+    };
+
+    /**
+     * Get the sample solution used for load testing a level
+     */
+    public static String getSampleProgram(int levelId) {
+        return SAMPLE_PROGRAMS[levelId - 1];
+    }
+
+    /**
+     * Load test: GradingClient [socketPath] [requests] [pipelineDepth]
+     */
+    public static void main(String[] args) throws IOException {
+        Path socket = args.length > 0 ? Paths.get(args[0]) : GradingDaemon.DEFAULT_SOCKET;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        Map<Integer, Long> sentAt = new HashMap<>();
+        long[] latencies = new long[requests];
+        int passed = 0;
+
+        try (GradingClient client = new GradingClient(socket)) {
+            long start = System.nanoTime();
+            int sent = 0;
+            int received = 0;
+
+            while (received < requests) {
+                // Keep up to depth requests in flight
+                while (sent < requests && sent - received < depth) {
+                    int level = sent % SAMPLE_PROGRAMS.length;
+                    int id = client.submit(level + 1, SAMPLE_PROGRAMS[level]);
+                    sentAt.put(id, System.nanoTime());
+                    sent++;
+                }
+
+                GradingProtocol.Response response = client.nextResponse();
+                latencies[received++] = System.nanoTime() - sentAt.remove(response.requestId);
+                if (response.result.isPassed()) {
+                    passed++;
+                }
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            System.out.printf("%d requests in %.2fs (%.0f/s), %d passed%n",
+                requests, seconds, requests / seconds, passed);
+            System.out.printf("latency p50 %.1fus, p99 %.1fus, max %.1fus%n",
+                latencies[requests / 2] / 1e3,
+                latencies[(int) (requests * 0.99)] / 1e3,
+                latencies[requests - 1] / 1e3);
+        }
+    }
+}
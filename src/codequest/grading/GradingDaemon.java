@@ -0,0 +1,309 @@
+package codequest.grading;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import codequest.engine.Interpreter;
+import codequest.engine.ProgramCompiler;
+
+/**
+ * GradingDaemon - Long-lived grading server on a Unix domain socket
+ * One selector thread reads length-prefixed requests from all clients, hands each
+ * round of requests to a worker pool as a batch, and streams results back as they finish.
+ */
+public class GradingDaemon implements Closeable {
+
+    public static final Path DEFAULT_SOCKET = Paths.get(System.getProperty("java.io.tmpdir"), "codequest-grader.sock");
+
+    private final Path socketPath;
+    private final Grader grader;
+    private final int workerCount;
+    private final ExecutorService workers;
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private volatile boolean running = false;
+
+    public GradingDaemon(Path socketPath, Grader grader, int workerCount) {
+        this.socketPath = socketPath;
+        this.grader = grader;
+        this.workerCount = workerCount;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "grading-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Bind the socket; call serve() afterwards to start handling requests
+     */
+    public void bind() throws IOException {
+        // A stale socket file from a previous run would make bind fail
+        Files.deleteIfExists(socketPath);
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+    }
+
+    /**
+     * Run the selector loop on the calling thread until close() is called
+     */
+    public void serve() throws IOException {
+        List<Job> batch = new ArrayList<>();
+
+        try {
+            while (running) {
+                serveRound(batch);
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // close() was called from another thread
+        }
+    }
+
+    /**
+     * Handle one select round, adding every decoded request to the batch
+     */
+    private void serveRound(List<Job> batch) throws IOException {
+        selector.select();
+
+        // Connections whose responses were queued by workers since the last round
+        Connection pending;
+        while ((pending = pendingWrites.poll()) != null) {
+            if (pending.key.isValid()) {
+                pending.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            try {
+                if (key.isAcceptable()) {
+                    accept();
+                } else {
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        connection.read(batch);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // A broken or misbehaving client only takes down its own connection
+                closeQuietly(key);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * Split one round of requests into at most workerCount chunks
+     */
+    private void dispatch(List<Job> batch) {
+        int chunks = Math.min(workerCount, batch.size());
+        int chunkSize = (batch.size() + chunks - 1) / chunks;
+
+        for (int start = 0; start < batch.size(); start += chunkSize) {
+            List<Job> chunk = batch.subList(start, Math.min(batch.size(), start + chunkSize));
+            workers.execute(() -> {
+                for (Job job : chunk) {
+                    complete(job);
+                }
+            });
+        }
+    }
+
+    private void complete(Job job) {
+        GradeResult result;
+        try {
+            result = grader.grade(job.request.levelId, job.request.program);
+        } catch (RuntimeException e) {
+            result = GradeResult.error("Grader failure: " + e);
+        }
+
+        job.connection.outbound.add(GradingProtocol.encodeResponse(job.request.requestId, result));
+        pendingWrites.add(job.connection);
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        workers.shutdown();
+        if (selector != null) {
+            selector.wakeup();
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            selector.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        Files.deleteIfExists(socketPath);
+    }
+
+    /**
+     * Wait for in-flight grading work to finish after close()
+     */
+    public boolean awaitWorkers(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * A decoded request and the connection its result goes back to
+     */
+    private static final class Job {
+        final Connection connection;
+        final GradingProtocol.Request request;
+
+        Job(Connection connection, GradingProtocol.Request request) {
+            this.connection = connection;
+            this.request = request;
+        }
+    }
+
+    /**
+     * Per-client framing state
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        ByteBuffer inbound = ByteBuffer.allocate(16 * 1024);
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Read whatever is available and add every complete frame to the batch
+         */
+        void read(List<Job> batch) throws IOException {
+            if (channel.read(inbound) < 0) {
+                throw new IOException("Client closed connection");
+            }
+
+            inbound.flip();
+            while (inbound.remaining() >= GradingProtocol.LENGTH_BYTES) {
+                int length = inbound.getInt(inbound.position());
+                GradingProtocol.checkFrameLength(length);
+
+                if (inbound.remaining() < GradingProtocol.LENGTH_BYTES + length) {
+                    ensureCapacity(GradingProtocol.LENGTH_BYTES + length);
+                    break;
+                }
+
+                inbound.position(inbound.position() + GradingProtocol.LENGTH_BYTES);
+                ByteBuffer body = inbound.slice();
+                body.limit(length);
+                inbound.position(inbound.position() + length);
+                batch.add(new Job(this, GradingProtocol.decodeRequest(body)));
+            }
+            inbound.compact();
+        }
+
+        private void ensureCapacity(int frameBytes) {
+            if (inbound.capacity() < frameBytes) {
+                ByteBuffer larger = ByteBuffer.allocate(frameBytes);
+                larger.put(inbound);
+                larger.flip();
+                inbound = larger;
+            }
+        }
+
+        /**
+         * Write queued responses until the socket would block
+         */
+        void flush() throws IOException {
+            ByteBuffer head;
+            while ((head = outbound.peek()) != null) {
+                channel.write(head);
+                if (head.hasRemaining()) {
+                    return;
+                }
+                outbound.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Start a daemon: GradingDaemon [socketPath] [workers] [cacheDir]
+     * Results are cached in memory; giving a cache directory also keeps them on disk.
+     */
+    public static void main(String[] args) throws IOException {
+        Path socket = args.length > 0 ? Paths.get(args[0]) : DEFAULT_SOCKET;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path cacheDir = args.length > 2 ? Paths.get(args[2]) : null;
+        int cacheSize = Integer.getInteger("codequest.grader.cacheSize", 100_000);
+
+        // -Dcodequest.grader.compile=true runs submissions as generated bytecode
+        ProgramCompiler compiler = Boolean.getBoolean("codequest.grader.compile") ? new ProgramCompiler(cacheSize) : null;
+        HeadlessGrader headless = new HeadlessGrader(Interpreter.DEFAULT_STEP_LIMIT, compiler);
+        Grader grader = new CachingGrader(headless, new ResultCache(cacheSize, cacheDir, headless.getStepLimit()));
+        GradingDaemon daemon = new GradingDaemon(socket, grader, threads);
+        daemon.bind();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+
+        System.out.println("Grading daemon listening on " + socket + " with " + threads + " workers");
+        daemon.serve();
+    }
+}
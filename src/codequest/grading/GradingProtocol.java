@@ -0,0 +1,110 @@
+package codequest.grading;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GradingProtocol - Wire format shared by GradingDaemon and GradingClient
+ *
+ * Every frame starts with a 4-byte length covering the rest of the frame.
+ * Request:  [length][int requestId][int levelId][UTF-8 program]
+ * Response: [length][int requestId][byte status][long steps][double finalX][UTF-8 message]
+ */
+public final class GradingProtocol {
+
+    public static final int LENGTH_BYTES = Integer.BYTES;
+    public static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+
+    private static final int REQUEST_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int RESPONSE_HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES + Double.BYTES;
+
+    private GradingProtocol() {
+    }
+
+    /**
+     * A decoded request frame
+     */
+    public static final class Request {
+        public final int requestId;
+        public final int levelId;
+        public final String program;
+
+        public Request(int requestId, int levelId, String program) {
+            this.requestId = requestId;
+            this.levelId = levelId;
+            this.program = program;
+        }
+    }
+
+    /**
+     * A decoded response frame
+     */
+    public static final class Response {
+        public final int requestId;
+        public final GradeResult result;
+
+        public Response(int requestId, GradeResult result) {
+            this.requestId = requestId;
+            this.result = result;
+        }
+    }
+
+    public static ByteBuffer encodeRequest(int requestId, int levelId, String program) {
+        byte[] text = program.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_BYTES + REQUEST_HEADER_BYTES + text.length);
+        frame.putInt(REQUEST_HEADER_BYTES + text.length);
+        frame.putInt(requestId);
+        frame.putInt(levelId);
+        frame.put(text);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Decode a request from a frame body (the bytes after the length prefix)
+     */
+    public static Request decodeRequest(ByteBuffer body) {
+        int requestId = body.getInt();
+        int levelId = body.getInt();
+        return new Request(requestId, levelId, readText(body));
+    }
+
+    public static ByteBuffer encodeResponse(int requestId, GradeResult result) {
+        byte[] text = result.getMessage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_BYTES + RESPONSE_HEADER_BYTES + text.length);
+        frame.putInt(RESPONSE_HEADER_BYTES + text.length);
+        frame.putInt(requestId);
+        frame.put((byte) result.getStatus().ordinal());
+        frame.putLong(result.getSteps());
+        frame.putDouble(result.getFinalX());
+        frame.put(text);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Decode a response from a frame body (the bytes after the length prefix)
+     */
+    public static Response decodeResponse(ByteBuffer body) {
+        int requestId = body.getInt();
+        GradeResult.Status status = GradeResult.Status.values()[body.get()];
+        long steps = body.getLong();
+        double finalX = body.getDouble();
+        return new Response(requestId, new GradeResult(status, steps, finalX, readText(body)));
+    }
+
+    /**
+     * Check a frame length read off the wire
+     */
+    public static void checkFrameLength(int length) {
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IllegalStateException("Bad frame length: " + length);
+        }
+    }
+
+    private static String readText(ByteBuffer body) {
+        byte[] text = new byte[body.remaining()];
+        body.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package codequest.grading;
+
+import java.util.stream.Collectors;
+
+import codequest.engine.CompiledProgram;
+import codequest.engine.ExecutionLimitException;
+import codequest.engine.Interpreter;
+import codequest.engine.LevelWorlds;
+import codequest.engine.ProgramAnalyzer;
+import codequest.engine.ProgramCompiler;
+import codequest.engine.ProgramRuntime;
+import codequest.engine.RunDecidedException;
+import codequest.engine.WinCondition;
+import codequest.engine.World;
+import codequest.lang.Optimizer;
+import codequest.lang.Parser;
+import codequest.lang.Program;
+import codequest.lang.SyntaxError;
+
+/**
+ * HeadlessGrader - Grades programs by running them against a headless World
+ * No JavaFX is involved, so many submissions can be graded in parallel.
+ * With a ProgramCompiler, programs run as compiled bytecode instead of being interpreted.
+ * A run stops as soon as the level's win condition says the outcome is settled, and
+ * programs the ProgramAnalyzer can decide are not run step by step at all.
+ */
+public class HeadlessGrader implements Grader {
+
+    private final long stepLimit;
+    private final ProgramCompiler compiler; // null to always interpret
+
+    public HeadlessGrader() {
+        this(Interpreter.DEFAULT_STEP_LIMIT, null);
+    }
+
+    public HeadlessGrader(long stepLimit, ProgramCompiler compiler) {
+        this.stepLimit = stepLimit;
+        this.compiler = compiler;
+    }
+
+    public long getStepLimit() {
+        return stepLimit;
+    }
+
+    @Override
+    public GradeResult grade(int levelId, String program) {
+        return grade(levelId, Parser.parse(program));
+    }
+
+    /**
+     * Grade a program that has already been parsed
+     */
+    public GradeResult grade(int levelId, Program parsed) {
+        if (levelId < 1 || levelId > LevelWorlds.LEVEL_COUNT) {
+            return GradeResult.error("Unknown level: " + levelId);
+        }
+
+        String errors = parsed.getErrors().stream().map(SyntaxError::toString).collect(Collectors.joining("\n"));
+        ProgramAnalyzer.Result analyzed = ProgramAnalyzer.analyze(parsed, LevelWorlds.create(levelId), stepLimit);
+        if (analyzed != null) {
+            GradeResult.Status status = analyzed.isPassed() ? GradeResult.Status.PASSED : GradeResult.Status.FAILED;
+            return new GradeResult(status, analyzed.getSteps(), analyzed.getFinalX(), errors);
+        }
+
+        World world = LevelWorlds.create(levelId);
+        Program program = Optimizer.optimize(parsed);
+        CompiledProgram compiled = compiler != null ? compiler.compile(program, world.getCommands()) : null;
+
+        long steps;
+        if (compiled != null) {
+            ProgramRuntime runtime = new ProgramRuntime(world, null, stepLimit);
+            runtime.setStopWhenDecided(true);
+            try {
+                compiled.run(runtime);
+            } catch (ExecutionLimitException e) {
+                return limitReached(world, runtime.getSteps(), e);
+            } catch (RunDecidedException e) {
+                return decided(world, runtime.getSteps(), e);
+            }
+            steps = runtime.getSteps();
+        } else {
+            Interpreter interpreter = new Interpreter(world, null, stepLimit);
+            interpreter.setStopWhenDecided(true);
+            try {
+                interpreter.run(program);
+            } catch (ExecutionLimitException e) {
+                return limitReached(world, interpreter.getSteps(), e);
+            } catch (RunDecidedException e) {
+                return decided(world, interpreter.getSteps(), e);
+            }
+            steps = interpreter.getSteps();
+        }
+
+        // Levels with obstacles check for collisions once the program has finished
+        world.checkObstacleCollisions();
+
+        GradeResult.Status status = world.isComplete() ? GradeResult.Status.PASSED : GradeResult.Status.FAILED;
+        return new GradeResult(status, steps, world.getSprite().getXPos(), errors);
+    }
+
+    private static GradeResult decided(World world, long steps, RunDecidedException e) {
+        GradeResult.Status status = e.getVerdict() == WinCondition.Verdict.WON
+            ? GradeResult.Status.PASSED : GradeResult.Status.FAILED;
+        return new GradeResult(status, steps, world.getSprite().getXPos(), e.getMessage());
+    }
+
+    private static GradeResult limitReached(World world, long steps, ExecutionLimitException e) {
+        return new GradeResult(GradeResult.Status.FAILED, steps, world.getSprite().getXPos(), e.getMessage());
+    }
+}
@@ -0,0 +1,172 @@
+package codequest.grading;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResultCache - Grading results keyed by (level, program hash)
+ * An in-memory LRU tier sits in front of an optional on-disk tier that survives restarts.
+ * Entries on disk also carry the cache VERSION and the grader's step limit, and one
+ * written under another version or limit is treated as a miss.
+ */
+public class ResultCache {
+
+    /**
+     * Bump whenever a change to the engine or the grader can change the result of a program,
+     * so results cached on disk by an older build are graded again
+     */
+    public static final int VERSION = 1;
+
+    private final int capacity;
+    private final Path directory; // null when there is no disk tier
+    private final long stepLimit;
+    private final Map<String, GradeResult> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache holding up to capacity results in memory for a grader with stepLimit
+     * Pass a directory to also keep every result on disk
+     */
+    public ResultCache(int capacity, Path directory, long stepLimit) throws IOException {
+        this.capacity = capacity;
+        this.directory = directory;
+        this.stepLimit = stepLimit;
+        this.memory = new LinkedHashMap<String, GradeResult>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GradeResult> eldest) {
+                return size() > ResultCache.this.capacity;
+            }
+        };
+
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Look up a result, returning null on a miss
+     */
+    public GradeResult get(int levelId, String hash) {
+        String key = key(levelId, hash);
+
+        GradeResult result;
+        synchronized (memory) {
+            result = memory.get(key);
+        }
+        if (result != null) {
+            memoryHits.incrementAndGet();
+            return result;
+        }
+
+        result = readFromDisk(key);
+        if (result != null) {
+            diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, result);
+            }
+            return result;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(int levelId, String hash, GradeResult result) {
+        String key = key(levelId, hash);
+        synchronized (memory) {
+            memory.put(key, result);
+        }
+        writeToDisk(key, result);
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static String key(int levelId, String hash) {
+        return levelId + "-" + hash;
+    }
+
+    /**
+     * Get the name of a key's file, which differs between versions and step limits
+     */
+    private String fileName(String key) {
+        return "v" + VERSION + "-" + stepLimit + "-" + key + ".result";
+    }
+
+    private GradeResult readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+
+        Path file = directory.resolve(fileName(key));
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            if (!Integer.toString(VERSION).equals(properties.getProperty("version"))
+                    || !Long.toString(stepLimit).equals(properties.getProperty("stepLimit"))) {
+                // Graded by another build or under another limit; graded again and rewritten
+                return null;
+            }
+            return new GradeResult(
+                GradeResult.Status.valueOf(properties.getProperty("status")),
+                Long.parseLong(properties.getProperty("steps")),
+                Double.parseDouble(properties.getProperty("finalX")),
+                properties.getProperty("message", ""));
+        } catch (IOException | RuntimeException e) {
+            // A damaged entry is treated as a miss and rewritten after grading
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, GradeResult result) {
+        if (directory == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("version", Integer.toString(VERSION));
+        properties.setProperty("stepLimit", Long.toString(stepLimit));
+        properties.setProperty("status", result.getStatus().name());
+        properties.setProperty("steps", Long.toString(result.getSteps()));
+        properties.setProperty("finalX", Double.toString(result.getFinalX()));
+        properties.setProperty("message", result.getMessage());
+
+        try {
+            // Write to a temporary file first so readers never see a half-written entry
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, directory.resolve(fileName(key)),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Could not write cached result " + key + ": " + e.getMessage());
+        }
+    }
+}
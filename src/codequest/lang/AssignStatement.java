@@ -0,0 +1,38 @@
+package codequest.lang;
+
+/**
+ * AssignStatement - A variable assignment such as speed = 10;
+ */
+public class AssignStatement extends Statement {
+
+    private final String variable;
+    private final int slot;
+    private final int value;
+
+    public AssignStatement(int line, String variable, int slot, int value) {
+        super(line);
+        this.variable = variable;
+        this.slot = slot;
+        this.value = value;
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * Get the frame slot the parser assigned to the variable
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitAssign(this);
+    }
+}
@@ -0,0 +1,72 @@
+package codequest.lang;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command - Every command a program can call, with the argument it takes
+ * The parser resolves each call to one of these once, checking up front that it is given
+ * a value exactly when it takes one, so running a program never compares command names.
+ * Each level's World says which of them it accepts as a bitmask of getBit() values.
+ */
+public enum Command {
+    MOVE_LEFT("moveLeft", false),
+    MOVE_RIGHT("moveRight", false),
+    JUMP("jump", false),
+    MOVE_BACK("moveBack", false),
+    SHOOT("shoot", false),
+    SET_SPEED("setSpeed", true); // takes a number or an int variable
+
+    private static final Map<String, Command> BY_NAME = new HashMap<>();
+
+    static {
+        for (Command command : values()) {
+            BY_NAME.put(command.name, command);
+        }
+    }
+
+    private final String name;
+    private final boolean takesValue;
+
+    Command(String name, boolean takesValue) {
+        this.name = name;
+        this.takesValue = takesValue;
+    }
+
+    /**
+     * Get the name programs call the command by
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the command is called with one value, like setSpeed(5); rather than none
+     */
+    public boolean takesValue() {
+        return takesValue;
+    }
+
+    public int getBit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Find a command by the name programs call it by, or null if there is none
+     */
+    public static Command lookup(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * Combine commands into a bitmask of their getBit() values
+     */
+    public static int mask(Set<Command> commands) {
+        int mask = 0;
+        for (Command command : commands) {
+            mask |= command.getBit();
+        }
+        return mask;
+    }
+}
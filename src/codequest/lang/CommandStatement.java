@@ -0,0 +1,38 @@
+package codequest.lang;
+
+/**
+ * CommandStatement - A command call such as moveRight(); or setSpeed(speed);
+ */
+public class CommandStatement extends Statement {
+
+    private final String name;
+    private final Command command; // null when no command has this name
+    private final Expression argument; // null when called without an argument
+
+    public CommandStatement(int line, String name, Command command, Expression argument) {
+        super(line);
+        this.name = name;
+        this.command = command;
+        this.argument = argument;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the command the parser resolved the name to, or null if it is not a command
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    public Expression getArgument() {
+        return argument;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitCommand(this);
+    }
+}
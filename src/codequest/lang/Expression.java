@@ -0,0 +1,53 @@
+package codequest.lang;
+
+/**
+ * Expression - A command argument: either an integer literal or a variable reference
+ */
+public class Expression {
+
+    private final String variable; // null for literals
+    private final int value;       // literal value, or frame slot for variables
+
+    private Expression(String variable, int value) {
+        this.variable = variable;
+        this.value = value;
+    }
+
+    public static Expression literal(int value) {
+        return new Expression(null, value);
+    }
+
+    public static Expression variable(String name, int slot) {
+        return new Expression(name, slot);
+    }
+
+    public boolean isLiteral() {
+        return variable == null;
+    }
+
+    /**
+     * Get the variable name, or null for a literal
+     */
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * Get the literal value (only meaningful when isLiteral() is true)
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Get the frame slot (only meaningful when isLiteral() is false)
+     */
+    public int getSlot() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return isLiteral() ? Integer.toString(value) : variable;
+    }
+}
@@ -0,0 +1,60 @@
+package codequest.lang;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ForStatement - A counted loop such as for (int i = 0; i < 3; i++) { ... }
+ */
+public class ForStatement extends Statement {
+
+    private final String variable;
+    private final int slot;
+    private final int start;
+    private final int end; // exclusive
+    private final List<Statement> body;
+
+    public ForStatement(int line, String variable, int slot, int start, int end, List<Statement> body) {
+        super(line);
+        this.variable = variable;
+        this.slot = slot;
+        this.start = start;
+        this.end = end;
+        this.body = Collections.unmodifiableList(body);
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * Get the frame slot of the loop variable
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the number of times the body runs
+     */
+    public int getIterations() {
+        return Math.max(0, end - start);
+    }
+
+    public List<Statement> getBody() {
+        return body;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitFor(this);
+    }
+}
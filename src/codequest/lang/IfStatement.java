@@ -0,0 +1,44 @@
+package codequest.lang;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * IfStatement - A conditional block such as if (enemyNear) { ... }
+ */
+public class IfStatement extends Statement {
+
+    private final String condition;
+    private final int slot;
+    private final List<Statement> body;
+
+    public IfStatement(int line, String condition, int slot, List<Statement> body) {
+        super(line);
+        this.condition = condition;
+        this.slot = slot;
+        this.body = Collections.unmodifiableList(body);
+    }
+
+    /**
+     * Get the name of the sensor or variable being tested
+     */
+    public String getCondition() {
+        return condition;
+    }
+
+    /**
+     * Get the frame slot used when the condition is a plain variable
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public List<Statement> getBody() {
+        return body;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitIf(this);
+    }
+}
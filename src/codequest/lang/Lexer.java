@@ -0,0 +1,199 @@
+package codequest.lang;
+
+/**
+ * Lexer - Single-pass tokenizer for the CodeQuest language
+ * Works as a cursor: next() advances to the following token and the getters describe it,
+ * so scanning allocates nothing per token. Every character is looked at once, which keeps
+ * tokenizing linear in the length of the text no matter how malformed it is.
+ */
+public final class Lexer implements TokenStream {
+
+    private final CharSequence text;
+    private final int end;
+
+    // Scan position
+    private int pos;
+    private int line;
+    private int column;
+
+    // Current token
+    private TokenType type;
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenLine;
+    private int tokenColumn;
+
+    public Lexer(CharSequence text) {
+        this(text, 0, text.length(), 1, 1);
+    }
+
+    /**
+     * Tokenize text[start, end) where start is at the given 1-based line and column
+     */
+    public Lexer(CharSequence text, int start, int end, int line, int column) {
+        this.text = text;
+        this.end = end;
+        this.pos = start;
+        this.line = line;
+        this.column = column;
+    }
+
+    @Override
+    public TokenType next() {
+        skipWhitespace();
+
+        tokenStart = pos;
+        tokenLine = line;
+        tokenColumn = column;
+
+        if (pos >= end) {
+            type = TokenType.EOF;
+            tokenEnd = pos;
+            return type;
+        }
+
+        char c = text.charAt(pos);
+        if (isIdentifierStart(c)) {
+            advanceWhile(true);
+            type = keywordOrIdentifier();
+        } else if (c >= '0' && c <= '9') {
+            advanceWhile(false);
+            type = TokenType.NUMBER;
+        } else if (c == '/' && peek(1) == '/') {
+            while (pos < end && text.charAt(pos) != '\n') {
+                advance();
+            }
+            type = TokenType.COMMENT;
+        } else {
+            type = punctuation(c);
+        }
+
+        tokenEnd = pos;
+        return type;
+    }
+
+    @Override
+    public TokenType getType() {
+        return type;
+    }
+
+    @Override
+    public int getStart() {
+        return tokenStart;
+    }
+
+    @Override
+    public int getEnd() {
+        return tokenEnd;
+    }
+
+    @Override
+    public int getLine() {
+        return tokenLine;
+    }
+
+    @Override
+    public int getColumn() {
+        return tokenColumn;
+    }
+
+    @Override
+    public String getText() {
+        return text.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    private TokenType punctuation(char c) {
+        advance();
+        switch (c) {
+            case '(':
+                return TokenType.LEFT_PAREN;
+            case ')':
+                return TokenType.RIGHT_PAREN;
+            case '{':
+                return TokenType.LEFT_BRACE;
+            case '}':
+                return TokenType.RIGHT_BRACE;
+            case ';':
+                return TokenType.SEMICOLON;
+            case '<':
+                return TokenType.LESS;
+            case '=':
+                if (peek(0) == '=') {
+                    advance();
+                    return TokenType.EQUALS;
+                }
+                return TokenType.ASSIGN;
+            case '+':
+                if (peek(0) == '+') {
+                    advance();
+                    return TokenType.INCREMENT;
+                }
+                return TokenType.ERROR;
+            default:
+                return TokenType.ERROR;
+        }
+    }
+
+    private TokenType keywordOrIdentifier() {
+        int length = pos - tokenStart;
+        if (length == 2 && matches("if")) {
+            return TokenType.IF;
+        } else if (length == 3 && matches("for")) {
+            return TokenType.FOR;
+        } else if (length == 3 && matches("int")) {
+            return TokenType.INT;
+        } else if (length == 4 && matches("true")) {
+            return TokenType.TRUE;
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    private boolean matches(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (text.charAt(tokenStart + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+            advance();
+        }
+    }
+
+    private void advanceWhile(boolean identifier) {
+        while (pos < end) {
+            char c = text.charAt(pos);
+            boolean part = identifier ? isIdentifierPart(c) : (c >= '0' && c <= '9');
+            if (!part) {
+                break;
+            }
+            advance();
+        }
+    }
+
+    private void advance() {
+        if (text.charAt(pos) == '\n') {
+            line++;
+            column = 1;
+        } else {
+            column++;
+        }
+        pos++;
+    }
+
+    private char peek(int offset) {
+        int index = pos + offset;
+        return index < end ? text.charAt(index) : '\0';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,46 @@
+package codequest.lang;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MotionStatement - A loop whose body only moves the sprite, produced by the Optimizer
+ * The body is straight-line moveLeft, moveRight, moveBack, jump and setSpeed(number)
+ * commands (possibly as RepeatStatements), so the whole loop can run in closed form.
+ */
+public class MotionStatement extends Statement {
+
+    private final List<Statement> body;
+    private final int iterations;
+    private final int steps;
+
+    public MotionStatement(int line, List<Statement> body, int iterations, int steps) {
+        super(line);
+        this.body = Collections.unmodifiableList(body);
+        this.iterations = iterations;
+        this.steps = steps;
+    }
+
+    /**
+     * Get the body; every entry is a CommandStatement or a RepeatStatement
+     */
+    public List<Statement> getBody() {
+        return body;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Get how many statements the original loop would have executed
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitMotion(this);
+    }
+}
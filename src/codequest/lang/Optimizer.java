@@ -0,0 +1,198 @@
+package codequest.lang;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimizer - Rewrites a parsed program so long runs of the same action execute in bulk
+ * Runs of an identical command and loops whose body only repeats one command become a
+ * RepeatStatement, loops whose body only moves the sprite become a MotionStatement, and
+ * loops whose variable is never read and whose body is empty are folded to zero iterations.
+ * The optimized program leaves the World in exactly the same state and counts the same
+ * number of steps as the original.
+ */
+public final class Optimizer {
+
+    // Commands without arguments that ProgramRuntime can run many times in one call
+    private static final Set<Command> REPEATABLE =
+        EnumSet.of(Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.JUMP, Command.SHOOT);
+
+    // Commands that only change the sprite's position or speed
+    private static final Set<Command> MOTION =
+        EnumSet.of(Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.MOVE_BACK, Command.JUMP, Command.SET_SPEED);
+
+    // Slots whose value the program reads, so loops that write them must keep running
+    private final BitSet readSlots = new BitSet();
+
+    private Optimizer() {
+    }
+
+    /**
+     * Optimize a program; syntax errors and variable slots are kept as they are
+     */
+    public static Program optimize(Program program) {
+        Optimizer optimizer = new Optimizer();
+        optimizer.collectReads(program.getStatements());
+        List<Statement> statements = optimizer.optimizeBlock(program.getStatements());
+        return new Program(statements, program.getErrors(), program.getVariables());
+    }
+
+    private void collectReads(List<Statement> statements) {
+        for (Statement statement : statements) {
+            if (statement instanceof CommandStatement) {
+                Expression argument = ((CommandStatement) statement).getArgument();
+                if (argument != null && !argument.isLiteral()) {
+                    readSlots.set(argument.getSlot());
+                }
+            } else if (statement instanceof IfStatement) {
+                IfStatement ifStatement = (IfStatement) statement;
+                readSlots.set(ifStatement.getSlot());
+                collectReads(ifStatement.getBody());
+            } else if (statement instanceof ForStatement) {
+                collectReads(((ForStatement) statement).getBody());
+            }
+        }
+    }
+
+    private List<Statement> optimizeBlock(List<Statement> statements) {
+        List<Statement> result = new ArrayList<>();
+        for (Statement statement : statements) {
+            Statement optimized = optimizeStatement(statement);
+            Statement last = result.isEmpty() ? null : result.get(result.size() - 1);
+            Statement merged = last != null ? merge(last, optimized) : null;
+            if (merged != null) {
+                result.set(result.size() - 1, merged);
+            } else {
+                result.add(optimized);
+            }
+        }
+        return result;
+    }
+
+    private Statement optimizeStatement(Statement statement) {
+        if (statement instanceof IfStatement) {
+            IfStatement ifStatement = (IfStatement) statement;
+            return new IfStatement(ifStatement.getLine(), ifStatement.getCondition(), ifStatement.getSlot(),
+                optimizeBlock(ifStatement.getBody()));
+        } else if (statement instanceof ForStatement) {
+            return optimizeFor((ForStatement) statement);
+        }
+        return statement;
+    }
+
+    private Statement optimizeFor(ForStatement loop) {
+        List<Statement> body = optimizeBlock(loop.getBody());
+        int iterations = loop.getIterations();
+        boolean variableRead = readSlots.get(loop.getSlot());
+
+        if (!variableRead && (iterations == 0 || body.isEmpty())) {
+            // Nothing observable happens inside, so only the loop statement itself is left
+            return new ForStatement(loop.getLine(), loop.getVariable(), loop.getSlot(), 0, 0, new ArrayList<>());
+        }
+
+        if (!variableRead && body.size() == 1) {
+            Statement only = body.get(0);
+            CommandStatement command = repeatedCommand(only);
+            if (command != null) {
+                try {
+                    int count = Math.multiplyExact(iterations, repeatCount(only));
+                    int steps = Math.addExact(1, Math.multiplyExact(iterations, repeatSteps(only)));
+                    return new RepeatStatement(loop.getLine(), command, count, steps, true);
+                } catch (ArithmeticException e) {
+                    // Too many repeats to count in an int; keep the loop
+                }
+            }
+        }
+
+        if (!variableRead && isMotion(body)) {
+            try {
+                int bodySteps = 0;
+                for (Statement statement : body) {
+                    bodySteps = Math.addExact(bodySteps, repeatSteps(statement));
+                }
+                int steps = Math.addExact(1, Math.multiplyExact(iterations, bodySteps));
+                return new MotionStatement(loop.getLine(), body, iterations, steps);
+            } catch (ArithmeticException e) {
+                // Too many steps to count in an int; keep the loop
+            }
+        }
+
+        return new ForStatement(loop.getLine(), loop.getVariable(), loop.getSlot(),
+            loop.getStart(), loop.getEnd(), body);
+    }
+
+    /**
+     * Whether a loop body only moves the sprite, with no shots, variables or conditions
+     */
+    private static boolean isMotion(List<Statement> body) {
+        for (Statement statement : body) {
+            CommandStatement command = null;
+            if (statement instanceof CommandStatement) {
+                command = (CommandStatement) statement;
+            } else if (statement instanceof RepeatStatement) {
+                command = ((RepeatStatement) statement).getCommand();
+            }
+            if (command == null || !MOTION.contains(command.getCommand())) {
+                return false;
+            }
+
+            // setSpeed takes a number; any other argument is not straight-line
+            Expression argument = command.getArgument();
+            boolean literalSpeed = argument != null && argument.isLiteral();
+            if (command.getCommand() == Command.SET_SPEED ? !literalSpeed : argument != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Combine two neighbouring statements that repeat the same command, or return null
+     */
+    private static Statement merge(Statement first, Statement second) {
+        CommandStatement command = repeatedCommand(first);
+        CommandStatement next = repeatedCommand(second);
+        if (command == null || next == null || command.getCommand() != next.getCommand()
+                || isLoop(first) != isLoop(second)) {
+            return null;
+        }
+        try {
+            int count = Math.addExact(repeatCount(first), repeatCount(second));
+            int steps = Math.addExact(repeatSteps(first), repeatSteps(second));
+            return new RepeatStatement(first.getLine(), command, count, steps, isLoop(first));
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the command a statement repeats, or null if it is not a repeatable command
+     */
+    private static CommandStatement repeatedCommand(Statement statement) {
+        CommandStatement command = null;
+        if (statement instanceof CommandStatement) {
+            command = (CommandStatement) statement;
+        } else if (statement instanceof RepeatStatement) {
+            command = ((RepeatStatement) statement).getCommand();
+        }
+        if (command == null || command.getArgument() != null || !REPEATABLE.contains(command.getCommand())) {
+            return null;
+        }
+        return command;
+    }
+
+    private static int repeatCount(Statement statement) {
+        return statement instanceof RepeatStatement ? ((RepeatStatement) statement).getCount() : 1;
+    }
+
+    private static int repeatSteps(Statement statement) {
+        return statement instanceof RepeatStatement ? ((RepeatStatement) statement).getSteps() : 1;
+    }
+
+    private static boolean isLoop(Statement statement) {
+        return statement instanceof RepeatStatement && ((RepeatStatement) statement).isLoop();
+    }
+}
@@ -0,0 +1,341 @@
+package codequest.lang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser - Turns student program text into a Program
+ * A recursive-descent parser over a TokenStream. Each token is read once and error
+ * recovery only ever moves forward, so parsing is linear in the program's length however
+ * malformed it is; a bad statement is reported with its line and column and the parser
+ * carries on from the next statement.
+ */
+public class Parser {
+
+    // Blocks nested deeper than this are reported and skipped rather than recursed into
+    private static final int MAX_NESTING = 64;
+
+    // Stop recording errors after this many; parsing still runs to the end
+    private static final int MAX_ERRORS = 100;
+
+    private final TokenStream tokens;
+    private final List<SyntaxError> errors = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> variables = new ArrayList<>();
+    private int depth = 0;
+
+    // Where the previous token ended, for reporting a missing token
+    private int previousLine = 1;
+    private int previousEndColumn = 1;
+    private int previousEnd = 0;
+
+    private Parser(TokenStream tokens) {
+        this.tokens = tokens;
+        advance();
+    }
+
+    /**
+     * Parse a whole program
+     */
+    public static Program parse(String source) {
+        return parse(new Lexer(source));
+    }
+
+    /**
+     * Parse a whole program from a token stream positioned before its first token
+     */
+    public static Program parse(TokenStream tokens) {
+        Parser parser = new Parser(tokens);
+        List<Statement> statements = new ArrayList<>();
+        while (parser.tokens.getType() != TokenType.EOF) {
+            if (parser.tokens.getType() == TokenType.RIGHT_BRACE) {
+                parser.error("Unmatched '}'");
+                parser.advance();
+            } else {
+                parser.parseStatement(statements);
+            }
+        }
+        return new Program(statements, parser.errors, parser.variables);
+    }
+
+    /**
+     * Parse one statement into the list, or report it and skip to the next one
+     */
+    private void parseStatement(List<Statement> statements) {
+        int line = tokens.getLine();
+        int column = tokens.getColumn();
+        try {
+            switch (tokens.getType()) {
+                case FOR:
+                    statements.add(parseFor(line));
+                    break;
+                case IF:
+                    statements.add(parseIf(line));
+                    break;
+                case IDENTIFIER:
+                    statements.add(parseAssignOrCall(line));
+                    break;
+                case ERROR:
+                    throw new ParseFailure("Unexpected character '" + tokens.getText() + "'", false);
+                default:
+                    throw new ParseFailure("Unexpected '" + tokens.getText() + "'", false);
+            }
+        } catch (ParseFailure failure) {
+            if (failure.missing) {
+                addError(previousLine, previousEndColumn, previousEnd, failure.getMessage());
+            } else {
+                error(failure.getMessage());
+            }
+            recover(line, column);
+        }
+    }
+
+    // for (int i = 0; i < 3; i++) { ... }
+    private Statement parseFor(int line) {
+        advance();
+        expect(TokenType.LEFT_PAREN, "'(' after for");
+        expect(TokenType.INT, "'int' to declare the loop variable");
+        String variable = expectIdentifier("a loop variable name");
+        expect(TokenType.ASSIGN, "'=' after the loop variable");
+        int start = expectNumber();
+        expect(TokenType.SEMICOLON, "';' after the start value");
+        expectLoopVariable(variable);
+        expect(TokenType.LESS, "'<' in the loop condition");
+        int end = expectNumber();
+        expect(TokenType.SEMICOLON, "';' after the loop condition");
+        expectLoopVariable(variable);
+        expect(TokenType.INCREMENT, "'++' after the loop variable");
+        expect(TokenType.RIGHT_PAREN, "')' to close the loop header");
+        int slot = slotOf(variable);
+        return new ForStatement(line, variable, slot, start, end, parseBlock());
+    }
+
+    // if (condition) { ... } or if (condition == true) { ... }
+    private Statement parseIf(int line) {
+        advance();
+        expect(TokenType.LEFT_PAREN, "'(' after if");
+        String condition = expectIdentifier("a condition");
+        if (tokens.getType() == TokenType.EQUALS) {
+            advance();
+            expect(TokenType.TRUE, "'true' after '=='");
+        }
+        expect(TokenType.RIGHT_PAREN, "')' to close the condition");
+        int slot = slotOf(condition);
+        return new IfStatement(line, condition, slot, parseBlock());
+    }
+
+    // name = 5; or name(); or name(5); or name(variable);
+    private Statement parseAssignOrCall(int line) {
+        String name = tokens.getText();
+        advance();
+
+        if (tokens.getType() == TokenType.ASSIGN) {
+            advance();
+            int value = expectNumber();
+            expect(TokenType.SEMICOLON, "';' after the value");
+            return new AssignStatement(line, name, slotOf(name), value);
+        }
+
+        expect(TokenType.LEFT_PAREN, "'(' or '=' after " + name);
+
+        // Unknown names are left for the running level to report
+        Command command = Command.lookup(name);
+        boolean hasValue = tokens.getType() == TokenType.NUMBER || tokens.getType() == TokenType.IDENTIFIER;
+        if (command != null && command.takesValue() && !hasValue) {
+            throw new ParseFailure(name + "() needs a number or a variable, like " + name + "(5);", false);
+        }
+        if (command != null && !command.takesValue() && hasValue) {
+            throw new ParseFailure(name + "() does not take a value", false);
+        }
+
+        Expression argument = null;
+        if (tokens.getType() == TokenType.NUMBER) {
+            argument = Expression.literal(expectNumber());
+        } else if (tokens.getType() == TokenType.IDENTIFIER) {
+            String variable = tokens.getText();
+            advance();
+            argument = Expression.variable(variable, slotOf(variable));
+        }
+        expect(TokenType.RIGHT_PAREN, "')' to close " + name + "(");
+        expect(TokenType.SEMICOLON, "';' after " + name + "()");
+        return new CommandStatement(line, name, command, argument);
+    }
+
+    /**
+     * Parse { statements } - errors inside the block are recovered from inside the block
+     */
+    private List<Statement> parseBlock() {
+        if (tokens.getType() != TokenType.LEFT_BRACE) {
+            throw new ParseFailure("Expected '{' to start the block", true);
+        }
+        if (depth >= MAX_NESTING) {
+            error("Blocks are nested too deeply");
+            skipBlock();
+            return new ArrayList<>();
+        }
+
+        advance();
+        depth++;
+        List<Statement> body = new ArrayList<>();
+        try {
+            while (tokens.getType() != TokenType.RIGHT_BRACE) {
+                if (tokens.getType() == TokenType.EOF) {
+                    error("Missing '}' to close the block");
+                    return body;
+                }
+                parseStatement(body);
+            }
+            advance();
+        } finally {
+            depth--;
+        }
+        return body;
+    }
+
+    /**
+     * Skip a whole block, counting braces instead of recursing
+     */
+    private void skipBlock() {
+        int open = 0;
+        do {
+            if (tokens.getType() == TokenType.LEFT_BRACE) {
+                open++;
+            } else if (tokens.getType() == TokenType.RIGHT_BRACE) {
+                open--;
+            }
+            advance();
+        } while (open > 0 && tokens.getType() != TokenType.EOF);
+    }
+
+    /**
+     * Skip forward to where the next statement can start: past a ';' or the block of a
+     * broken header, up to a '}' that closes the enclosing block, or the first token on a
+     * later line
+     */
+    private void recover(int line, int column) {
+        // Always make progress, even when the failure was at the statement's first token
+        if (tokens.getLine() == line && tokens.getColumn() == column) {
+            advance();
+        }
+        while (tokens.getType() != TokenType.EOF) {
+            TokenType type = tokens.getType();
+            if (type == TokenType.SEMICOLON) {
+                advance();
+                return;
+            }
+            if (type == TokenType.LEFT_BRACE) {
+                skipBlock();
+                return;
+            }
+            if (type == TokenType.RIGHT_BRACE && depth > 0) {
+                return;
+            }
+            if (tokens.getLine() > line && startsStatement(type)) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    private static boolean startsStatement(TokenType type) {
+        return type == TokenType.IDENTIFIER || type == TokenType.FOR || type == TokenType.IF;
+    }
+
+    private void expect(TokenType type, String what) {
+        if (tokens.getType() != type) {
+            throw new ParseFailure("Expected " + what, true);
+        }
+        advance();
+    }
+
+    private String expectIdentifier(String what) {
+        if (tokens.getType() != TokenType.IDENTIFIER) {
+            throw new ParseFailure("Expected " + what, true);
+        }
+        String name = tokens.getText();
+        advance();
+        return name;
+    }
+
+    private void expectLoopVariable(String variable) {
+        String name = expectIdentifier("the loop variable " + variable);
+        if (!name.equals(variable)) {
+            throw new ParseFailure("Expected the loop variable " + variable + " but found " + name, false);
+        }
+    }
+
+    private int expectNumber() {
+        if (tokens.getType() != TokenType.NUMBER) {
+            throw new ParseFailure("Expected a number", true);
+        }
+        String digits = tokens.getText();
+        long value = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            value = value * 10 + (digits.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new ParseFailure("Number is too large", false);
+            }
+        }
+        advance();
+        return (int) value;
+    }
+
+    /**
+     * Move to the next token, skipping comments
+     */
+    private void advance() {
+        if (tokens.getType() != null) {
+            previousLine = tokens.getLine();
+            previousEndColumn = tokens.getColumn() + (tokens.getEnd() - tokens.getStart());
+            previousEnd = tokens.getEnd();
+        }
+        while (tokens.next() == TokenType.COMMENT) {
+            // Comments carry no meaning
+        }
+    }
+
+    /**
+     * Report an error at the current token
+     */
+    private void error(String message) {
+        addError(tokens.getLine(), tokens.getColumn(), tokens.getStart(), message);
+    }
+
+    private void addError(int line, int column, int offset, String message) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new SyntaxError(line, column, offset, message));
+        } else if (errors.size() == MAX_ERRORS) {
+            errors.add(new SyntaxError(line, column, offset, "Too many errors, stopped reporting"));
+        }
+    }
+
+    /**
+     * Resolve a variable name to its frame slot, assigning the next free slot on first use
+     */
+    private int slotOf(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = variables.size();
+            slots.put(name, slot);
+            variables.add(name);
+        }
+        return slot;
+    }
+
+    /**
+     * Unwinds out of the statement being parsed; the statement is then recovered from
+     */
+    private static final class ParseFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        // A token is missing, so the error belongs just after the previous token
+        final boolean missing;
+
+        ParseFailure(String message, boolean missing) {
+            super(message, null, false, false);
+            this.missing = missing;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package codequest.lang;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Program - A parsed student program
+ * Holds the top-level statements in source order plus any syntax errors
+ */
+public class Program {
+
+    private final List<Statement> statements;
+    private final List<SyntaxError> errors;
+    private final List<String> variables;
+
+    public Program(List<Statement> statements, List<SyntaxError> errors, List<String> variables) {
+        this.statements = Collections.unmodifiableList(statements);
+        this.errors = Collections.unmodifiableList(errors);
+        this.variables = Collections.unmodifiableList(variables);
+    }
+
+    /**
+     * Get the top-level statements in source order
+     */
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Get the syntax errors the parser reported, in source order
+     */
+    public List<SyntaxError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Get the variable names indexed by frame slot
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Get the number of slots a frame needs to run this program
+     */
+    public int getSlotCount() {
+        return variables.size();
+    }
+}
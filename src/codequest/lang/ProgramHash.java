@@ -0,0 +1,121 @@
+package codequest.lang;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * ProgramHash - Canonical text and content hash of a parsed program
+ * Programs that differ only in comments, whitespace or line breaks print and hash the same
+ */
+public final class ProgramHash {
+
+    private ProgramHash() {
+    }
+
+    /**
+     * Get the SHA-256 of the canonical form, as a hex string
+     */
+    public static String hash(Program program) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(canonical(program).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Print the program in a canonical single-line form
+     */
+    public static String canonical(Program program) {
+        StringBuilder out = new StringBuilder();
+        Printer printer = new Printer(out);
+        printer.printBlock(program.getStatements());
+
+        // Syntax errors change what the run prints, so they are part of the identity too
+        for (SyntaxError error : program.getErrors()) {
+            out.append("#error ").append(error).append(';');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Print one statement in the same canonical form
+     */
+    public static String canonical(Statement statement) {
+        StringBuilder out = new StringBuilder();
+        statement.accept(new Printer(out));
+        return out.toString();
+    }
+
+    private static final class Printer implements StatementVisitor<Void> {
+
+        private final StringBuilder out;
+
+        Printer(StringBuilder out) {
+            this.out = out;
+        }
+
+        void printBlock(List<Statement> statements) {
+            for (Statement statement : statements) {
+                statement.accept(this);
+            }
+        }
+
+        @Override
+        public Void visitCommand(CommandStatement statement) {
+            out.append(statement.getName()).append('(');
+            if (statement.getArgument() != null) {
+                out.append(statement.getArgument());
+            }
+            out.append(");");
+            return null;
+        }
+
+        @Override
+        public Void visitAssign(AssignStatement statement) {
+            out.append(statement.getVariable()).append('=').append(statement.getValue()).append(';');
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfStatement statement) {
+            out.append("if(").append(statement.getCondition()).append("){");
+            printBlock(statement.getBody());
+            out.append('}');
+            return null;
+        }
+
+        @Override
+        public Void visitFor(ForStatement statement) {
+            out.append("for(").append(statement.getVariable()).append(':')
+               .append(statement.getStart()).append(':').append(statement.getEnd()).append("){");
+            printBlock(statement.getBody());
+            out.append('}');
+            return null;
+        }
+
+        @Override
+        public Void visitRepeat(RepeatStatement statement) {
+            out.append("repeat(").append(statement.getCount()).append(':').append(statement.getSteps())
+               .append(statement.isLoop() ? ":loop" : "").append("){");
+            statement.getCommand().accept(this);
+            out.append('}');
+            return null;
+        }
+
+        @Override
+        public Void visitMotion(MotionStatement statement) {
+            out.append("motion(").append(statement.getIterations()).append(':').append(statement.getSteps())
+               .append("){");
+            printBlock(statement.getBody());
+            out.append('}');
+            return null;
+        }
+    }
+}
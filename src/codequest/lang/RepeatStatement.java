@@ -0,0 +1,52 @@
+package codequest.lang;
+
+/**
+ * RepeatStatement - A command run several times in a row, produced by the Optimizer
+ * Stands for a run of identical commands or a loop that only repeats one command,
+ * so it can be executed in bulk while still counting every statement it replaces.
+ */
+public class RepeatStatement extends Statement {
+
+    private final CommandStatement command;
+    private final int count;
+    private final int steps;
+    private final boolean loop;
+
+    public RepeatStatement(int line, CommandStatement command, int count, int steps, boolean loop) {
+        super(line);
+        this.command = command;
+        this.count = count;
+        this.steps = steps;
+        this.loop = loop;
+    }
+
+    public CommandStatement getCommand() {
+        return command;
+    }
+
+    /**
+     * Get how many times the command runs
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get how many statements the original program would have executed for this one
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Whether the repeats came from a for loop, which matters to shoot()
+     */
+    public boolean isLoop() {
+        return loop;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitRepeat(this);
+    }
+}
@@ -0,0 +1,22 @@
+package codequest.lang;
+
+/**
+ * Statement - Base class for all statements of the CodeQuest language
+ */
+public abstract class Statement {
+
+    private final int line;
+
+    protected Statement(int line) {
+        this.line = line;
+    }
+
+    /**
+     * Get the 1-based source line the statement starts on
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public abstract <R> R accept(StatementVisitor<R> visitor);
+}
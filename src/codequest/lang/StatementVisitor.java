@@ -0,0 +1,19 @@
+package codequest.lang;
+
+/**
+ * StatementVisitor - Visitor over the statement types of the CodeQuest language
+ */
+public interface StatementVisitor<R> {
+
+    R visitCommand(CommandStatement statement);
+
+    R visitAssign(AssignStatement statement);
+
+    R visitIf(IfStatement statement);
+
+    R visitFor(ForStatement statement);
+
+    R visitRepeat(RepeatStatement statement);
+
+    R visitMotion(MotionStatement statement);
+}
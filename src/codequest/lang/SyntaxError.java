@@ -0,0 +1,43 @@
+package codequest.lang;
+
+/**
+ * SyntaxError - A problem the parser found, with its 1-based line and column and its offset
+ */
+public class SyntaxError {
+
+    private final int line;
+    private final int column;
+    private final int offset;
+    private final String message;
+
+    public SyntaxError(int line, int column, int offset, String message) {
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the character offset of the error in the program text
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "Line " + line + ", column " + column + ": " + message;
+    }
+}
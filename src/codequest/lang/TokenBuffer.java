@@ -0,0 +1,344 @@
+package codequest.lang;
+
+import java.util.Arrays;
+
+/**
+ * TokenBuffer - The tokens of a text that is edited a little at a time
+ * After an edit only the tokens around the edited span are lexed again. The Lexer never
+ * looks behind a token's start, so once a new token starts where an old token after the
+ * edit started (shifted by the edit's length change), every following token is unchanged
+ * and lexing stops. Line starts are kept up to date the same way, so line and column
+ * lookups never rescan the text.
+ */
+public final class TokenBuffer {
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private CharSequence text = "";
+
+    // Token i covers text[starts[i], ends[i]) and has type TYPES[types[i]]
+    private int count = 0;
+    private byte[] types = new byte[256];
+    private int[] starts = new int[256];
+    private int[] ends = new int[256];
+
+    // Offsets where each line begins; lineStarts[0] is always 0
+    private int lineCount = 1;
+    private int[] lineStarts = new int[64];
+
+    // Tokens lexed by the last reset or update
+    private int relexed = 0;
+
+    // Scratch space for the tokens re-lexed by an update
+    private byte[] newTypes = new byte[64];
+    private int[] newStarts = new int[64];
+    private int[] newEnds = new int[64];
+
+    /**
+     * Tokenize a whole text, dropping whatever was buffered before
+     */
+    public void reset(CharSequence text) {
+        this.text = text;
+        count = 0;
+        Lexer lexer = new Lexer(text);
+        while (lexer.next() != TokenType.EOF) {
+            ensureCapacity(count + 1);
+            types[count] = (byte) lexer.getType().ordinal();
+            starts[count] = lexer.getStart();
+            ends[count] = lexer.getEnd();
+            count++;
+        }
+        relexed = count;
+
+        lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                addLineStart(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Catch up with an edit that replaced removed characters at start with inserted ones
+     *
+     * @param text the whole text after the edit
+     */
+    public void update(CharSequence text, int start, int removed, int inserted) {
+        int delta = inserted - removed;
+        int oldEditEnd = start + removed;
+        int newEditEnd = start + inserted;
+        updateLineStarts(text, start, removed, inserted);
+
+        // Back up one token, since the edit can join it to the next ("+" "+" becomes "++")
+        int first = Math.max(0, firstEndingAtOrAfter(start) - 1);
+        int from = first < count ? Math.min(starts[first], start) : 0;
+
+        // Old tokens that could line up again are the ones after the edit
+        int old = firstStartingAtOrAfter(oldEditEnd);
+
+        Lexer lexer = new Lexer(text, from, text.length(), 1, 1);
+        int lexed = 0;
+        boolean synced = false;
+        while (lexer.next() != TokenType.EOF) {
+            int tokenStart = lexer.getStart();
+            if (tokenStart >= newEditEnd) {
+                while (old < count && starts[old] + delta < tokenStart) {
+                    old++;
+                }
+                if (old < count && starts[old] + delta == tokenStart) {
+                    synced = true;
+                    break;
+                }
+            }
+
+            if (lexed == newTypes.length) {
+                newTypes = Arrays.copyOf(newTypes, lexed * 2);
+                newStarts = Arrays.copyOf(newStarts, lexed * 2);
+                newEnds = Arrays.copyOf(newEnds, lexed * 2);
+            }
+            newTypes[lexed] = (byte) lexer.getType().ordinal();
+            newStarts[lexed] = tokenStart;
+            newEnds[lexed] = lexer.getEnd();
+            lexed++;
+        }
+        if (!synced) {
+            old = count;
+        }
+
+        // Replace tokens [first, old) with the new ones and shift the rest
+        int tail = count - old;
+        int newCount = first + lexed + tail;
+        ensureCapacity(newCount);
+        System.arraycopy(types, old, types, first + lexed, tail);
+        System.arraycopy(starts, old, starts, first + lexed, tail);
+        System.arraycopy(ends, old, ends, first + lexed, tail);
+        System.arraycopy(newTypes, 0, types, first, lexed);
+        System.arraycopy(newStarts, 0, starts, first, lexed);
+        System.arraycopy(newEnds, 0, ends, first, lexed);
+        if (delta != 0) {
+            for (int i = first + lexed; i < newCount; i++) {
+                starts[i] += delta;
+                ends[i] += delta;
+            }
+        }
+
+        count = newCount;
+        relexed = lexed;
+        this.text = text;
+    }
+
+    /**
+     * Get a stream over the buffered tokens, for the Parser
+     * The stream reads the buffer directly, so it must not be used across an update.
+     */
+    public TokenStream stream() {
+        return new Cursor();
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public int getTokenCount() {
+        return count;
+    }
+
+    public TokenType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Get how many tokens the last reset or update had to lex
+     */
+    public int getRelexedCount() {
+        return relexed;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Get the 1-based line that contains an offset
+     */
+    public int lineOf(int offset) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * Get the offset where a 1-based line begins
+     */
+    public int lineStart(int line) {
+        return lineStarts[line - 1];
+    }
+
+    private void updateLineStarts(CharSequence text, int start, int removed, int inserted) {
+        // Lines that began inside the removed span are gone
+        int low = firstLineStartAfter(start);
+        int high = firstLineStartAfter(start + removed);
+
+        int added = 0;
+        for (int i = start; i < start + inserted; i++) {
+            if (text.charAt(i) == '\n') {
+                added++;
+            }
+        }
+
+        int tail = lineCount - high;
+        int newCount = low + added + tail;
+        if (newCount > lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, Math.max(newCount, lineStarts.length * 2));
+        }
+        System.arraycopy(lineStarts, high, lineStarts, low + added, tail);
+
+        int delta = inserted - removed;
+        for (int i = low + added; i < newCount; i++) {
+            lineStarts[i] += delta;
+        }
+        int next = low;
+        for (int i = start; i < start + inserted; i++) {
+            if (text.charAt(i) == '\n') {
+                lineStarts[next++] = i + 1;
+            }
+        }
+        lineCount = newCount;
+    }
+
+    private int firstLineStartAfter(int offset) {
+        int low = 0;
+        int high = lineCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int firstStartingAtOrAfter(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addLineStart(int offset) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = offset;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > types.length) {
+            int capacity = Math.max(size, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+    }
+
+    /**
+     * Reads the buffer in place
+     */
+    private final class Cursor implements TokenStream {
+        private int index = -1;
+        private int lineIndex = -1; // token whose line and column are cached
+        private int line;
+        private int column;
+
+        @Override
+        public TokenType next() {
+            if (index < count) {
+                index++;
+            }
+            return getType();
+        }
+
+        @Override
+        public TokenType getType() {
+            if (index < 0) {
+                return null;
+            }
+            return index < count ? TYPES[types[index]] : TokenType.EOF;
+        }
+
+        @Override
+        public int getStart() {
+            return index < count ? starts[index] : text.length();
+        }
+
+        @Override
+        public int getEnd() {
+            return index < count ? ends[index] : text.length();
+        }
+
+        @Override
+        public int getLine() {
+            locate();
+            return line;
+        }
+
+        @Override
+        public int getColumn() {
+            locate();
+            return column;
+        }
+
+        @Override
+        public String getText() {
+            return text.subSequence(getStart(), getEnd()).toString();
+        }
+
+        private void locate() {
+            if (lineIndex != index) {
+                int start = getStart();
+                line = lineOf(start);
+                column = start - lineStarts[line - 1] + 1;
+                lineIndex = index;
+            }
+        }
+    }
+}
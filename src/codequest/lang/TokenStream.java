@@ -0,0 +1,32 @@
+package codequest.lang;
+
+/**
+ * TokenStream - A cursor over tokens, as the Parser reads them
+ * next() advances and the getters describe the current token. Implemented by the Lexer
+ * for one-off parses and by TokenBuffer for text that is re-tokenized as it is edited.
+ */
+public interface TokenStream {
+
+    /**
+     * Advance to the next token and return its type; returns EOF at the end of the text
+     */
+    TokenType next();
+
+    TokenType getType();
+
+    /**
+     * Get the offset of the current token's first character
+     */
+    int getStart();
+
+    /**
+     * Get the offset just past the current token
+     */
+    int getEnd();
+
+    int getLine();
+
+    int getColumn();
+
+    String getText();
+}
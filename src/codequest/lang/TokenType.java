@@ -0,0 +1,25 @@
+package codequest.lang;
+
+/**
+ * TokenType - The kinds of token the Lexer produces
+ */
+public enum TokenType {
+    IDENTIFIER,
+    NUMBER,
+    FOR,
+    IF,
+    INT,
+    TRUE,
+    LEFT_PAREN,
+    RIGHT_PAREN,
+    LEFT_BRACE,
+    RIGHT_BRACE,
+    SEMICOLON,
+    ASSIGN,     // =
+    EQUALS,     // ==
+    LESS,       // <
+    INCREMENT,  // ++
+    COMMENT,    // from // to the end of the line
+    ERROR,      // a character the language does not use
+    EOF
+}
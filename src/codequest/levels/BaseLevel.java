@@ -2,15 +2,43 @@ package codequest.levels;
 
 import codequest.GameManager;
 import codequest.GameSprite;
+import codequest.editor.CodeEditor;
+import codequest.editor.SyntaxChecker;
+import codequest.engine.EventBus;
+import codequest.engine.EventPublisher;
+import codequest.engine.ExecutionLimitException;
+import codequest.engine.ExecutionListener;
+import codequest.engine.ExecutionProfile;
+import codequest.engine.GameEvent;
+import codequest.engine.IncrementalRunner;
+import codequest.engine.Interpreter;
+import codequest.engine.LevelWorlds;
+import codequest.engine.RunTimeline;
+import codequest.engine.World;
+import codequest.engine.WorldHistory;
+import codequest.engine.WorldSnapshot;
+import codequest.lang.Command;
+import codequest.lang.Optimizer;
+import codequest.lang.Parser;
+import codequest.lang.SyntaxError;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
 import javafx.scene.paint.Color;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.CacheHint;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextArea;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -22,19 +50,83 @@ import javafx.scene.text.Text;
 /**
  * BaseLevel - Common functionality for all level types
  * Fixed layer management with consistent dimensions
+ * Programs run on a headless World on a background thread, which publishes what happens
+ * to an EventBus; the scene and the run's timeline each drain a subscription of their own
+ * once per frame, and the on* hooks below keep the scene in step
  */
 public abstract class BaseLevel implements Level {
 
+    // Programs run one at a time on this thread, the only producer on the event bus
+    private static final ExecutorService RUNNER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "codequest-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final EventBus EVENTS = new EventBus(1 << 14);
+
     protected GameManager gameManager;
+    protected World world;
     protected GameSprite sprite;
     protected Pane gamePane;
     protected Pane backgroundLayer; // For background elements like goal areas
     protected Pane spriteLayer;     // For the player character
+    protected Pane decorationLayer; // For labels and panels over the sprite that rarely change
     protected Pane foregroundLayer; // For UI elements on top
     protected TextArea outputArea;
-    protected TextArea codeArea;
+    protected CodeEditor codeArea;
     protected boolean levelCompleted = false;
 
+    // Checkpoints from earlier runs, so an edited program resumes from its first change
+    private final IncrementalRunner runner = new IncrementalRunner();
+
+    // The level as it starts; every run begins from here, as it does for the grader
+    private World.State startState;
+
+    // Checks the code in the background as it is typed; the editor belongs to the current scene
+    private Label errorLabel;
+    private final SyntaxChecker syntaxChecker = new SyntaxChecker(() -> codeArea.getText(), this::showErrors);
+
+    // The scene's view of the running program; only used on the FX thread
+    private EventBus.Subscription display;
+    // The run's timeline, recorded from its own subscription so it never depends on what the
+    // scene does with an event
+    private EventBus.Subscription recording;
+    private final AnimationTimer displayTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drainEvents();
+        }
+    };
+    private boolean completedThisRun = false;
+    // The World jumped during the run; it is only read once the runner is done with it
+    private boolean restoredThisRun = false;
+
+    // Output lines waiting to be added to the output area in one go
+    private final StringBuilder pendingOutput = new StringBuilder();
+    private boolean draining = false;
+
+    private Button runButton;
+    private Button profileButton;
+    private Button resetButton;
+
+    // Busiest lines listed after a profile
+    private static final int PROFILE_HOT_LINES = 3;
+
+    // The last run's state before each statement, and the one being shown while stepping
+    private final WorldHistory history = new WorldHistory();
+    private int historyIndex = -1;
+    private Button stepBackButton;
+    private Button stepForwardButton;
+    private Label stepLabel;
+
+    // What the scene showed at each tick of the last run, for scrubbing back through it
+    private final RunTimeline timeline = new RunTimeline();
+    private final RunTimeline.Frame timelineFrame = new RunTimeline.Frame();
+    private Slider timelineSlider;
+    private Label timelineLabel;
+    private boolean scrubbed = false;
+    private boolean updatingTimeline = false;
+
     // Standard dimensions for elements - changed to match window dimensions
     protected static final int GAME_WIDTH = 1000; // Increased to match window width
     protected static final int GAME_HEIGHT = 330; // Reduced height to fit everything
@@ -43,6 +135,7 @@ public abstract class BaseLevel implements Level {
 
     public BaseLevel(GameManager gameManager) {
         this.gameManager = gameManager;
+        runner.setHistory(history);
     }
 
     @Override
@@ -85,17 +178,24 @@ public abstract class BaseLevel implements Level {
         // Add the main VBox to the root with exact fit
         root.setCenter(mainContent);
 
-        // Initialize the sprite on the sprite layer - positioned to match screenshot
-        sprite = new GameSprite(spriteLayer);
+        // Initialize the world and draw its sprite on the sprite layer
+        world = LevelWorlds.create(getLevelNumber());
+        startState = world.saveState();
+        sprite = new GameSprite(spriteLayer, world.getSprite());
 
         // Create scene with consistent dimensions
         Scene scene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
         // Load CSS for consistent styling
-        scene.getStylesheets().add(getClass().getResource("/codequest/assets/styles.css").toExternalForm());
+        scene.getStylesheets().add(GameManager.STYLESHEET);
         
         return scene;
     }
 
+    @Override
+    public void sceneShown() {
+        syntaxChecker.replaced();
+    }
+
     /**
      * Setup the game pane with proper layering and consistent dimensions
      */
@@ -112,6 +212,7 @@ public abstract class BaseLevel implements Level {
         backgroundLayer.setPrefSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
         backgroundLayer.setMaxSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
         backgroundLayer.setMinSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
+        cacheAsBitmap(backgroundLayer);
 
         // Sprite layer - for the player character
         spriteLayer = new Pane();
@@ -119,6 +220,14 @@ public abstract class BaseLevel implements Level {
         spriteLayer.setMaxSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
         spriteLayer.setMinSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
 
+        // Decoration layer - for goal labels, hints and panels that do not move
+        decorationLayer = new Pane();
+        decorationLayer.setPrefSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
+        decorationLayer.setMaxSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
+        decorationLayer.setMinSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
+        decorationLayer.setMouseTransparent(true);
+        cacheAsBitmap(decorationLayer);
+
         // Foreground layer - for UI elements, text, etc.
         foregroundLayer = new Pane();
         foregroundLayer.setPrefSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
@@ -126,7 +235,19 @@ public abstract class BaseLevel implements Level {
         foregroundLayer.setMinSize(WINDOW_WIDTH - 20, GAME_HEIGHT);
 
         // Add layers in order (bottom to top)
-        gamePane.getChildren().addAll(backgroundLayer, spriteLayer, foregroundLayer);
+        gamePane.getChildren().addAll(backgroundLayer, spriteLayer, decorationLayer, foregroundLayer);
+    }
+
+    /**
+     * Draw a layer from a bitmap of its contents instead of compositing every node each pulse
+     * JavaFX renders the layer into the bitmap once and only renders it again when something
+     * in it changes or it is resized, such as when a level is reset or a target is hit. While
+     * the sprite animates, the layer then costs one image draw per frame, however many shapes,
+     * labels and effects it holds. Anything that changes every frame belongs elsewhere.
+     */
+    private static void cacheAsBitmap(Pane layer) {
+        layer.setCache(true);
+        layer.setCacheHint(CacheHint.QUALITY);
     }
 
     protected VBox createTopSection() {
@@ -156,28 +277,62 @@ public abstract class BaseLevel implements Level {
         bottomBox.setPrefWidth(WINDOW_WIDTH - 20); // Account for padding
         bottomBox.setMaxHeight(WINDOW_HEIGHT - GAME_HEIGHT - 100); // Ensure bottom section fits
 
+        // Timeline of the last run, right under the game area
+        timelineSlider = new Slider(0, 0, 0);
+        timelineSlider.setBlockIncrement(1);
+        timelineSlider.valueProperty().addListener((obs, oldValue, newValue) -> {
+            if (!updatingTimeline) {
+                scrubTo((int) Math.round(newValue.doubleValue()));
+            }
+        });
+        HBox.setHgrow(timelineSlider, javafx.scene.layout.Priority.ALWAYS);
+
+        timelineLabel = new Label();
+        timelineLabel.setStyle("-fx-text-fill: #dfe6e9;");
+        timelineLabel.setMinWidth(160);
+
+        Label replayLabel = new Label("Replay:");
+        replayLabel.setStyle("-fx-text-fill: white;");
+        HBox timelineBox = new HBox(10, replayLabel, timelineSlider, timelineLabel);
+        timelineBox.setAlignment(Pos.CENTER_LEFT);
+        updateTimelineControls();
+
         // Code area - styling to match screenshot
         Label codeLabel = new Label("Your Code:");
         codeLabel.setStyle("-fx-text-fill: white;");
 
-        codeArea = new TextArea();
+        codeArea = new CodeEditor();
         // Increased height for better usability
         codeArea.setPrefHeight(150);
         codeArea.setPromptText("Type your code here...");
+        codeArea.setStyle("-fx-background-color: #2d3436;");
+        // The starter code is checked once the scene is shown, as this may run off the FX thread
         codeArea.setText(getStarterCode());
-        codeArea.setStyle("-fx-control-inner-background: #2d3436; -fx-text-fill: #dfe6e9;");
+        codeArea.setEditListener(syntaxChecker);
+
+        errorLabel = new Label();
+        errorLabel.setStyle("-fx-text-fill: #ff7675;");
+        errorLabel.setManaged(false);
+        errorLabel.setVisible(false);
+        VBox codeBox = new VBox(2, codeArea, errorLabel);
 
         // Buttons - styling to match screenshot
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER);
         buttonBox.setPadding(new Insets(5, 0, 5, 0)); // Reduced vertical padding
 
-        Button runButton = new Button("Run Code");
+        runButton = new Button("Run Code");
         runButton.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-font-size: 14px;");
         runButton.setPrefSize(120, 35); // Adjusted height
         runButton.setOnAction(e -> processCommand(codeArea.getText()));
 
-        Button resetButton = new Button("Reset Level");
+        // Counts what the program costs without showing the run
+        profileButton = new Button("Profile");
+        profileButton.setStyle("-fx-background-color: #e17055; -fx-text-fill: white; -fx-font-size: 14px;");
+        profileButton.setPrefSize(120, 35);
+        profileButton.setOnAction(e -> profileProgram(codeArea.getText()));
+
+        resetButton = new Button("Reset Level");
         resetButton.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white; -fx-font-size: 14px;");
         resetButton.setPrefSize(120, 35); // Adjusted height
         resetButton.setOnAction(e -> resetLevel());
@@ -187,7 +342,23 @@ public abstract class BaseLevel implements Level {
         helpButton.setPrefSize(120, 35); // Adjusted height
         helpButton.setOnAction(e -> showHelp());
 
-        buttonBox.getChildren().addAll(runButton, resetButton, helpButton);
+        // Step through the last run without running it again
+        stepBackButton = new Button("\u25C0 Step Back");
+        stepBackButton.setStyle("-fx-background-color: #636e72; -fx-text-fill: white; -fx-font-size: 14px;");
+        stepBackButton.setPrefSize(120, 35);
+        stepBackButton.setOnAction(e -> stepTo(historyIndex - 1));
+
+        stepForwardButton = new Button("Step Forward \u25B6");
+        stepForwardButton.setStyle("-fx-background-color: #636e72; -fx-text-fill: white; -fx-font-size: 14px;");
+        stepForwardButton.setPrefSize(120, 35);
+        stepForwardButton.setOnAction(e -> stepTo(historyIndex + 1));
+
+        stepLabel = new Label();
+        stepLabel.setStyle("-fx-text-fill: #dfe6e9;");
+        updateStepControls();
+
+        buttonBox.getChildren().addAll(runButton, profileButton, resetButton, helpButton, stepBackButton, stepForwardButton,
+            stepLabel);
 
         // Output area - styling to match screenshot
         Label outputLabel = new Label("Output:");
@@ -199,17 +370,40 @@ public abstract class BaseLevel implements Level {
         outputArea.setEditable(false);
         outputArea.setStyle("-fx-control-inner-background: #2d3436; -fx-text-fill: #8fbcbb;");
 
-        bottomBox.getChildren().addAll(codeLabel, codeArea, buttonBox, outputLabel, outputArea);
+        bottomBox.getChildren().addAll(timelineBox, codeLabel, codeBox, buttonBox, outputLabel, outputArea);
         return bottomBox;
     }
 
+    /**
+     * Mark syntax errors in the editor and show the first one below it
+     */
+    private void showErrors(List<SyntaxError> errors) {
+        codeArea.setErrors(errors);
+        boolean any = !errors.isEmpty();
+        errorLabel.setManaged(any);
+        errorLabel.setVisible(any);
+        if (any) {
+            String more = errors.size() > 1 ? " (+" + (errors.size() - 1) + " more)" : "";
+            errorLabel.setText(errors.get(0) + more);
+        }
+    }
+
     protected void resetLevel() {
         // Clear layers
         spriteLayer.getChildren().clear();
 
         // Reset game state
-        sprite = new GameSprite(spriteLayer);
+        world = LevelWorlds.create(getLevelNumber());
+        startState = world.saveState();
+        sprite = new GameSprite(spriteLayer, world.getSprite());
         levelCompleted = false;
+        history.clear();
+        historyIndex = -1;
+        codeArea.setMarkedLine(-1);
+        updateStepControls();
+        timeline.clear();
+        scrubbed = false;
+        updateTimelineControls();
 
         // Clear output and reset code
         outputArea.clear();
@@ -245,10 +439,340 @@ public abstract class BaseLevel implements Level {
         }
     }
 
+    /**
+     * Parse and run a program against the level's world in the background, animating the
+     * sprite as its events arrive; onRunFinished() is called once they have all been shown
+     */
+    protected void runProgram(String code) {
+        appendToOutput("\n--- Running your code ---");
+        setRunning(true);
+        historyIndex = -1;
+        codeArea.setMarkedLine(-1);
+        updateStepControls();
+
+        // Start over from the level's starting state, so the checkpoints of the last run
+        // still apply and an edited program resumes from its first change
+        world.restoreState(startState);
+        scrubbed = false;
+        sprite.placeAt(world.getSprite().getXPos());
+        refreshFromWorld();
+        timeline.start(world.getSprite().getXPos(), world.getSprite().getSpeed(), world.getTargetCount(),
+            world::isTargetHit);
+        updateTimelineControls();
+
+        // Subscribe before the run starts so no event is missed
+        World runWorld = world;
+        display = EVENTS.subscribe();
+        recording = EVENTS.subscribe();
+        RUNNER.execute(() -> execute(runWorld, code));
+        displayTimer.start();
+    }
+
+    private void setRunning(boolean running) {
+        runButton.setDisable(running);
+        profileButton.setDisable(running);
+        resetButton.setDisable(running);
+    }
+
+    /**
+     * Run a program from the start of the level without showing it, then report how many
+     * statements, loop iterations and actions it took and shade the editor's gutter by
+     * how often each line ran. The level's own World is left as it is.
+     */
+    private void profileProgram(String code) {
+        appendToOutput("\n--- Profiling your code ---");
+        setRunning(true);
+        World profileWorld = LevelWorlds.create(getLevelNumber());
+        RUNNER.execute(() -> {
+            ExecutionProfile profile = new ExecutionProfile();
+            Interpreter interpreter = new Interpreter(profileWorld, null);
+            interpreter.setProfile(profile);
+            String[] stopped = new String[1];
+            try {
+                // Not optimized, so every statement is counted on its own line
+                interpreter.run(Parser.parse(code));
+            } catch (ExecutionLimitException e) {
+                stopped[0] = e.getMessage();
+            } catch (RuntimeException e) {
+                stopped[0] = "Profiling stopped by an error: " + e;
+            } finally {
+                // Whatever happened, the buttons are given back
+                Platform.runLater(() -> showProfile(profile, stopped[0]));
+            }
+        });
+    }
+
+    private void showProfile(ExecutionProfile profile, String stopped) {
+        setRunning(false);
+        if (stopped != null) {
+            appendToOutput(stopped + "; the counts below are up to that point");
+        }
+        appendToOutput("Statements run: " + profile.getStatements());
+        appendToOutput("Loop iterations: " + profile.getLoopIterations());
+        appendToOutput("Sprite actions: " + profile.getActions() + describeActions(profile));
+        appendToOutput("Simulated time: " + profile.getTicks() + " ticks (one per statement started)");
+
+        long[] counts = profile.getLineCounts();
+        List<Integer> hot = new ArrayList<>();
+        for (int line = 0; line < counts.length; line++) {
+            if (counts[line] > 0) {
+                hot.add(line);
+            }
+        }
+        hot.sort((a, b) -> Long.compare(counts[b], counts[a]));
+        for (int line : hot.subList(0, Math.min(PROFILE_HOT_LINES, hot.size()))) {
+            appendToOutput("  line " + (line + 1) + " ran " + counts[line] + " time" + (counts[line] == 1 ? "" : "s"));
+        }
+        codeArea.setLineHeat(counts);
+    }
+
+    private static String describeActions(ExecutionProfile profile) {
+        StringBuilder kinds = new StringBuilder();
+        for (Command command : Command.values()) {
+            long count = profile.getActions(command);
+            if (count > 0) {
+                kinds.append(kinds.length() == 0 ? " (" : ", ").append(command.getName()).append("() x").append(count);
+            }
+        }
+        return kinds.length() == 0 ? "" : kinds.append(')').toString();
+    }
+
+    /**
+     * Run a program on the runner thread, publishing everything it does
+     */
+    private void execute(World runWorld, String code) {
+        EventPublisher publisher = new EventPublisher(EVENTS, runWorld);
+        try {
+            try {
+                // Runs of the same action execute as one move, one animation and one log line
+                runner.run(runWorld, publisher, Optimizer.optimize(Parser.parse(code)));
+            } catch (ExecutionLimitException e) {
+                publisher.onOutput(e.getMessage());
+            }
+            afterRun(runWorld, publisher);
+        } finally {
+            publisher.finished();
+        }
+    }
+
+    /**
+     * Show the events published since the last frame
+     */
+    private void drainEvents() {
+        if (display == null) {
+            return;
+        }
+        draining = true;
+        try {
+            recording.poll(timeline::record, EVENTS.getCapacity());
+            display.poll(this::render, EVENTS.getCapacity());
+        } finally {
+            draining = false;
+            flushOutput();
+        }
+    }
+
+    private void render(GameEvent event) {
+        switch (event.getType()) {
+            case OUTPUT:
+                onOutput(event.getText());
+                break;
+            case MOVED:
+                sprite.syncTo(event.getX());
+                onMoved(event.getText());
+                break;
+            case JUMPED:
+                onJumped();
+                break;
+            case SHOT:
+                onShot(event.getValue());
+                break;
+            case SPEED_CHANGED:
+                onSpeedChanged(event.getValue());
+                break;
+            case RESTORED:
+                sprite.syncTo(event.getX());
+                onRestored(event.getValue());
+                break;
+            case LEVEL_COMPLETED:
+                completedThisRun = true;
+                break;
+            case RUN_FINISHED:
+                finishRun();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void finishRun() {
+        // RUN_FINISHED is the run's last event, so this records the rest of the run
+        recording.poll(timeline::record, EVENTS.getCapacity());
+        EVENTS.unsubscribe(recording);
+        recording = null;
+        EVENTS.unsubscribe(display);
+        display = null;
+        displayTimer.stop();
+        setRunning(false);
+        historyIndex = history.size() - 1;
+        updateStepControls();
+        timeline.finish(world.getTargetCount(), world::isTargetHit);
+        updateTimelineControls();
+
+        if (restoredThisRun) {
+            restoredThisRun = false;
+            refreshFromWorld();
+        }
+        onRunFinished();
+        if (completedThisRun) {
+            completedThisRun = false;
+            completeLevel();
+        }
+    }
+
+    /**
+     * Put the World back to how it was before one statement of the last run and show it
+     * Running again starts over from the start of the level.
+     */
+    private void stepTo(int index) {
+        if (index < 0 || index >= history.size()) {
+            return;
+        }
+        historyIndex = index;
+        scrubbed = false;
+        history.restore(index, world);
+        WorldSnapshot snapshot = history.get(index);
+        sprite.syncTo(snapshot.getXPos());
+        codeArea.setMarkedLine(snapshot.getLine() - 1);
+        refreshFromWorld();
+        updateStepControls();
+    }
+
+    private void updateStepControls() {
+        boolean running = display != null;
+        stepBackButton.setDisable(running || historyIndex <= 0);
+        stepForwardButton.setDisable(running || historyIndex < 0 || historyIndex >= history.size() - 1);
+        if (historyIndex < 0) {
+            stepLabel.setText("");
+            return;
+        }
+
+        WorldSnapshot snapshot = history.get(historyIndex);
+        String where = snapshot.getLine() < 0 ? "after the last statement" : "before line " + snapshot.getLine();
+        String more = history.isTruncated() ? " (recording stopped at " + WorldHistory.MAX_SNAPSHOTS + ")" : "";
+        stepLabel.setText("Step " + (historyIndex + 1) + "/" + history.size() + ": " + where + more);
+    }
+
+    /**
+     * Show the scene as it was at one tick of the last run, without animating or touching
+     * the World; seeking costs the same however long the run was
+     */
+    private void scrubTo(int tick) {
+        if (display != null || tick < 0 || tick >= timeline.getTickCount()) {
+            return;
+        }
+        timeline.seek(tick, timelineFrame);
+        scrubbed = true;
+        sprite.placeAt(timelineFrame.getX());
+        showFrame(timelineFrame);
+        updateTimelineLabel(tick);
+    }
+
+    private void updateTimelineControls() {
+        int ticks = timeline.getTickCount();
+        updatingTimeline = true;
+        timelineSlider.setDisable(display != null || ticks < 2);
+        timelineSlider.setMax(Math.max(0, ticks - 1));
+        timelineSlider.setValue(Math.max(0, ticks - 1));
+        updatingTimeline = false;
+        updateTimelineLabel(ticks - 1);
+    }
+
+    private void updateTimelineLabel(int tick) {
+        if (timeline.getTickCount() < 2) {
+            timelineLabel.setText("");
+            return;
+        }
+        String more = timeline.isTruncated() ? " (recording stopped)" : "";
+        timelineLabel.setText("Tick " + tick + "/" + (timeline.getTickCount() - 1) + more);
+    }
+
+    /**
+     * Draw whatever the level shows from a tick of the last run; the sprite is already there
+     */
+    protected void showFrame(RunTimeline.Frame frame) {
+    }
+
+    /**
+     * Redraw whatever the level shows from the World, after it jumped to a saved state
+     * Only called while no program is running, so the World can be read directly.
+     */
+    protected void refreshFromWorld() {
+    }
+
+    /**
+     * Called on the runner thread after the program, before the win condition is checked
+     * Anything the level changes in the World here must be reported through the listener.
+     */
+    protected void afterRun(World runWorld, ExecutionListener listener) {
+    }
+
+    /**
+     * Called on the FX thread once every event of a run has been shown
+     */
+    protected void onRunFinished() {
+    }
+
+    protected void onOutput(String text) {
+        appendToOutput(text);
+    }
+
+    /**
+     * The sprite has already been moved to where the command left it
+     */
+    protected void onMoved(String command) {
+    }
+
+    /**
+     * The World jumped to a saved state instead of running the first skippedStatements
+     * top-level statements; the runner is still using the World, so anything drawn from it
+     * is refreshed once the run has finished
+     */
+    protected void onRestored(int skippedStatements) {
+        appendToOutput("(Skipped " + skippedStatements + " unchanged statement" + (skippedStatements == 1 ? "" : "s")
+            + " from the last run)");
+        restoredThisRun = true;
+    }
+
+    protected void onJumped() {
+        sprite.jump();
+    }
+
+    /**
+     * A shot was fired; targetIndex is the target it hit, or -1 for a miss
+     */
+    protected void onShot(int targetIndex) {
+        sprite.shoot();
+    }
+
+    protected void onSpeedChanged(int speed) {
+    }
+
     protected void appendToOutput(String text) {
-        outputArea.appendText(text + "\n");
-        // Scroll to the bottom for better visibility
-        outputArea.positionCaret(outputArea.getText().length());
+        pendingOutput.append(text).append('\n');
+        // While events are being drained, lines are added once at the end of the frame
+        if (!draining) {
+            flushOutput();
+        }
+    }
+
+    private void flushOutput() {
+        if (pendingOutput.length() > 0) {
+            outputArea.appendText(pendingOutput.toString());
+            pendingOutput.setLength(0);
+            // Scroll to the bottom for better visibility
+            outputArea.positionCaret(outputArea.getLength());
+        }
     }
 
     protected void showHelp() {
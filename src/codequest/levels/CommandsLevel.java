@@ -1,6 +1,7 @@
 package codequest.levels;
 
 import codequest.GameManager;
+import codequest.lang.Command;
 import javafx.scene.Scene;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
@@ -13,8 +14,6 @@ import javafx.scene.text.Text;
 public class CommandsLevel extends BaseLevel {
 
     private Rectangle goal;
-    private boolean movedLeft = false;
-    private boolean jumped = false;
 
     public CommandsLevel(GameManager gameManager) {
         super(gameManager);
@@ -87,70 +86,43 @@ public class CommandsLevel extends BaseLevel {
         // Add label to background
         backgroundLayer.getChildren().add(goalLabel);
 
-        // Debug message
         return scene;
     }
 
     @Override
     public void processCommand(String command) {
-        // Split the command into lines
-        String[] lines = command.split("\n");
-
-        appendToOutput("\n--- Running your code ---");
-
-        for (String line : lines) {
-            // Remove comments and trim whitespace
-            line = line.replaceAll("//.*", "").trim();
-
-            if (line.isEmpty()) {
-                continue;
-            }
-
-            // Check for basic commands
-            if (line.matches("moveLeft\\(\\);.*")) {
-                appendToOutput("Executing: moveLeft()");
-                sprite.moveLeft();
-                movedLeft = true;
-
-                // Debug position
-                appendToOutput("DEBUG: Sprite position after moveLeft: X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
-            } else if (line.matches("jump\\(\\);.*")) {
-                appendToOutput("Executing: jump()");
-                sprite.jump();
-                jumped = true;
-
-                // Debug position
-                appendToOutput("DEBUG: Sprite position after jump: X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
-            } else {
-                appendToOutput("Unrecognized command: " + line);
-            }
-        }
+        // Only moveLeft() and jump() are allowed here; anything else is reported as unrecognized
+        runProgram(command);
+    }
 
+    @Override
+    protected void onRunFinished() {
         // Debug collision check
         boolean inGoalX = sprite.getXPos() >= goal.getX() && sprite.getXPos() <= goal.getX() + goal.getWidth();
         boolean inGoalY = sprite.getYPos() >= goal.getY() && sprite.getYPos() <= goal.getY() + goal.getHeight();
         appendToOutput("DEBUG: In goal area? X:" + inGoalX + ", Y:" + inGoalY +
-                      " (Needed: moveLeft=" + movedLeft + ", jumped=" + jumped + ")");
+                      " (Needed: moveLeft=" + world.hasExecuted(Command.MOVE_LEFT)
+                      + ", jumped=" + world.hasExecuted(Command.JUMP) + ")");
+    }
 
-        // Check if the level is completed
-        checkLevelCompletion();
+    @Override
+    protected void onMoved(String command) {
+        super.onMoved(command);
+
+        // Debug position
+        appendToOutput("DEBUG: Sprite position after " + command + ": X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
     }
 
-    private void checkLevelCompletion() {
-        // Check if the sprite is in the goal area and the required commands were used
-        if (sprite.getXPos() >= goal.getX() &&
-            sprite.getXPos() <= goal.getX() + goal.getWidth() &&
-            sprite.getYPos() >= goal.getY() &&
-            sprite.getYPos() <= goal.getY() + goal.getHeight() &&
-            movedLeft && jumped) {
-            completeLevel();
-        }
+    @Override
+    protected void onJumped() {
+        super.onJumped();
+
+        // Debug position
+        appendToOutput("DEBUG: Sprite position after jump: X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
     }
 
     @Override
     protected void onReset() {
-        // Clear the game-specific state
-        movedLeft = false;
-        jumped = false;
+        // The executed commands live in the fresh world created by resetLevel()
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package codequest.levels;
+
+import codequest.engine.EntityStore;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * EntityView - Draws a level's EntityStore as one Rectangle per entity
+ * The view keeps a copy of the store for the FX thread, since the World's own store is
+ * being changed by the running program. The copy is updated from run events, or from the
+ * World while nothing runs, and sync() redraws only the entities that changed.
+ */
+final class EntityView {
+
+    private final EntityStore store;
+    private final Rectangle[] shapes;
+
+    EntityView(EntityStore source, Pane layer) {
+        store = new EntityStore(source);
+        shapes = new Rectangle[store.size()];
+        for (int id = 0; id < shapes.length; id++) {
+            shapes[id] = new Rectangle();
+            layer.getChildren().add(shapes[id]);
+        }
+        sync();
+    }
+
+    EntityStore getStore() {
+        return store;
+    }
+
+    Rectangle getShape(int id) {
+        return shapes[id];
+    }
+
+    void setHit(int id, boolean hit) {
+        store.setFlag(id, EntityStore.HIT, hit);
+        sync();
+    }
+
+    /**
+     * Show the positions and flags of a store of the same level, such as the World's
+     */
+    void copyFrom(EntityStore source) {
+        store.copyStateFrom(source);
+        sync();
+    }
+
+    /**
+     * Redraw the entities changed since the last sync
+     */
+    void sync() {
+        store.drainDirty(this::draw);
+    }
+
+    private void draw(int id) {
+        Rectangle shape = shapes[id];
+        shape.setX(store.getX(id));
+        shape.setY(store.getY(id));
+        shape.setWidth(store.getWidth(id));
+        shape.setHeight(store.getHeight(id));
+        switch (store.getKind(id)) {
+            case GOAL:
+                shape.setFill(Color.GREEN);
+                shape.setOpacity(0.8);
+                break;
+            case TARGET:
+                shape.setFill(store.hasFlag(id, EntityStore.HIT) ? Color.GRAY : Color.RED);
+                break;
+            case OBSTACLE:
+                shape.setFill(Color.GRAY);
+                break;
+            case ENEMY:
+                shape.setFill(Color.DARKRED);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -8,9 +8,17 @@ import javafx.scene.Scene;
 public interface Level {
     /**
      * Creates and returns the scene for this level
+     * May be called on a background thread ahead of time; nothing may touch a shown scene,
+     * and nothing may start an animation (animations are only played on the FX thread).
      */
     Scene createLevelScene();
 
+    /**
+     * Called on the FX thread once the scene from createLevelScene() is on the stage
+     */
+    default void sceneShown() {
+    }
+
     /**
      * Processes a command entered by the user
      */
@@ -1,14 +1,10 @@
 package codequest.levels;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import codequest.GameManager;
+import codequest.engine.EntityStore;
+import codequest.engine.RunTimeline;
 import javafx.scene.Scene;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 
@@ -18,10 +14,7 @@ import javafx.scene.text.Text;
  */
 public class LoopsLevel extends BaseLevel {
 
-    private Rectangle goal;
-    private List<Rectangle> targets = new ArrayList<>(); // Changed to Rectangle for consistency
-    private int targetsHit = 0;
-    private boolean usedLoop = false;
+    private EntityView entities; // The goal and targets, drawn from the world's entities
     private Text statusText; // Store reference to status text for easier updates
 
     public LoopsLevel(GameManager gameManager) {
@@ -81,23 +74,8 @@ public class LoopsLevel extends BaseLevel {
     public Scene createLevelScene() {
         Scene scene = super.createLevelScene();
 
-        // Add goal area
-        goal = new Rectangle(100, 50);
-        goal.setFill(Color.GREEN);
-        goal.setX(500); // Right side for moveRight
-        goal.setY(200);
-        goal.setOpacity(0.8);
-
-        // Add targets as Rectangles (not ImageViews) for consistency
-        for (int i = 0; i < 3; i++) {
-            Rectangle target = new Rectangle(30, 30);
-            target.setFill(Color.RED);
-            target.setX(200 + (i * 100)); // Spread across the visible area
-            target.setY(100 + (i * 50));  // At different heights
-            
-            backgroundLayer.getChildren().add(target);
-            targets.add(target);
-        }
+        // Targets spread across the visible area at different heights, and the goal on the right
+        entities = new EntityView(world.getEntities(), backgroundLayer);
 
         // Add status display and store reference
         statusText = new Text("Targets Hit: 0/3");
@@ -106,10 +84,11 @@ public class LoopsLevel extends BaseLevel {
         statusText.setFill(Color.WHITE);
         statusText.setFont(Font.font("Arial", 14));
 
-        backgroundLayer.getChildren().add(goal);
         foregroundLayer.getChildren().add(statusText);
 
-        appendToOutput("DEBUG: Goal placed at X:" + goal.getX() + ", Y:" + goal.getY());
+        int goal = entities.getStore().first(EntityStore.Kind.GOAL);
+        appendToOutput("DEBUG: Goal placed at X:" + entities.getStore().getX(goal) + ", Y:"
+            + entities.getStore().getY(goal));
         appendToOutput("Welcome to Level 4: Loops!\nUse a for loop to shoot at all the targets.");
         appendToOutput("Your shots will automatically hit targets in sequence.");
 
@@ -118,110 +97,52 @@ public class LoopsLevel extends BaseLevel {
 
     @Override
     public void processCommand(String command) {
-        appendToOutput("\n--- Running your code ---");
-
-        // Check for for loop pattern
-        Pattern forLoopPattern = Pattern.compile("for\\s*\\(\\s*int\\s+\\w+\\s*=\\s*\\d+\\s*;\\s*\\w+\\s*<\\s*\\d+\\s*;\\s*\\w+\\+\\+\\s*\\)\\s*\\{([^}]*)\\}");
-        Matcher forLoopMatcher = forLoopPattern.matcher(command);
-
-        while (forLoopMatcher.find()) {
-            String loopBody = forLoopMatcher.group(1);
-
-            // Extract loop parameters
-            Pattern loopParamPattern = Pattern.compile("for\\s*\\(\\s*int\\s+(\\w+)\\s*=\\s*(\\d+)\\s*;\\s*\\w+\\s*<\\s*(\\d+)\\s*;");
-            Matcher loopParamMatcher = loopParamPattern.matcher(command);
-
-            if (loopParamMatcher.find()) {
-                String varName = loopParamMatcher.group(1);
-                int startValue = Integer.parseInt(loopParamMatcher.group(2));
-                int endValue = Integer.parseInt(loopParamMatcher.group(3));
-
-                appendToOutput("Found for loop with " + varName + " from " + startValue + " to " + (endValue - 1));
-
-                // Execute the loop
-                for (int i = startValue; i < endValue; i++) {
-                    appendToOutput("Loop iteration: " + varName + " = " + i);
-
-                    // Check if the loop body contains shoot()
-                    if (loopBody.contains("shoot()")) {
-                        executeShoot();
-                        usedLoop = true;
-
-                        // Add a small delay to make the shots visible
-                        try {
-                            Thread.sleep(500);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
-            }
-        }
+        // Loops, shots and moves run in the order they are written
+        runProgram(command);
+    }
 
-        // Process other commands (like moveRight)
-        Pattern moveRightPattern = Pattern.compile("moveRight\\(\\);");
-        Matcher moveRightMatcher = moveRightPattern.matcher(command);
+    @Override
+    protected void onShot(int targetIndex) {
+        super.onShot(targetIndex);
 
-        while (moveRightMatcher.find()) {
-            appendToOutput("Executing: moveRight()");
-            sprite.moveRight();
+        // Shots automatically hit the next target in sequence
+        if (targetIndex >= 0) {
+            entities.setHit(world.getTargetEntity(targetIndex), true);
+            updateStatusDisplay();
         }
-
-        // Check if the level is completed
-        checkLevelCompletion();
     }
 
-    private void executeShoot() {
-        appendToOutput("Executing: shoot()");
-        sprite.shoot();
-
-        // Check for target hits - automatic targeting system
-        if (targetsHit < targets.size()) {
-            // Always hit the next target in sequence
-            Rectangle target = targets.get(targetsHit);
-            
-            // Mark target as hit
-            targetsHit++;
-            target.setFill(Color.GRAY);
-            
-            // Update status directly
-            updateStatusDisplay();
-            
-            appendToOutput("Target " + targetsHit + " hit!");
-        } else {
-            appendToOutput("No more targets to hit!");
-        }
+    @Override
+    protected void refreshFromWorld() {
+        // Targets hit by skipped or stepped-over statements never got an onShot
+        entities.copyFrom(world.getEntities());
+        updateStatusDisplay();
     }
 
-    private void updateStatusDisplay() {
-        // Update status directly using the stored reference
+    @Override
+    protected void showFrame(RunTimeline.Frame frame) {
+        for (int i = 0; i < world.getTargetCount(); i++) {
+            entities.setHit(world.getTargetEntity(i), frame.isTargetHit(i));
+        }
         if (statusText != null) {
-            statusText.setText("Targets Hit: " + targetsHit + "/3");
+            statusText.setText("Targets Hit: " + frame.getTargetsHit() + "/3");
         }
     }
 
-    private void checkLevelCompletion() {
-        // Check if all targets are hit and the sprite reached the goal
-        if (targetsHit >= 3 &&
-            sprite.getXPos() >= goal.getX() &&
-            sprite.getXPos() <= goal.getX() + goal.getWidth() &&
-            sprite.getYPos() >= goal.getY() &&
-            sprite.getYPos() <= goal.getY() + goal.getHeight() &&
-            usedLoop) {
-            completeLevel();
+    private void updateStatusDisplay() {
+        // Counted from the view, which follows the shots shown so far; the World may be ahead
+        if (statusText != null) {
+            statusText.setText("Targets Hit: " + entities.getStore().count(EntityStore.Kind.TARGET, EntityStore.HIT)
+                + "/3");
         }
     }
 
     @Override
     protected void onReset() {
-        // Reset targets
-        targetsHit = 0;
-        usedLoop = false;
+        // Hit counts and the loop flag live in the fresh world created by resetLevel()
 
         // Reset target visuals
-        for (Rectangle target : targets) {
-            target.setFill(Color.RED);
-        }
+        entities.copyFrom(world.getEntities());
 
         // Update status display
         updateStatusDisplay();
@@ -1,10 +1,5 @@
 package codequest.levels;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import codequest.GameManager;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
@@ -25,8 +20,6 @@ import javafx.scene.text.Text;
 public class VariablesLevel extends BaseLevel {
 
     private Rectangle goal;
-    private Map<String, Object> variables = new HashMap<>();
-    private boolean usedVariable = false;
     private Label speedDisplay;
 
     public VariablesLevel(GameManager gameManager) {
@@ -93,12 +86,17 @@ public class VariablesLevel extends BaseLevel {
         spriteLayer.setPrefHeight(GAME_HEIGHT);
         spriteLayer.setMaxHeight(GAME_HEIGHT);
         
+        decorationLayer.setPrefWidth(GAME_WIDTH);
+        decorationLayer.setPrefHeight(GAME_HEIGHT);
+        decorationLayer.setMaxHeight(GAME_HEIGHT);
+        
         foregroundLayer.setPrefWidth(GAME_WIDTH);
         foregroundLayer.setPrefHeight(GAME_HEIGHT);
         foregroundLayer.setMaxHeight(GAME_HEIGHT);
 
         // Clear any existing elements
         backgroundLayer.getChildren().clear();
+        decorationLayer.getChildren().clear();
         foregroundLayer.getChildren().clear();
 
         // Set a proper background for the game area
@@ -113,8 +111,9 @@ public class VariablesLevel extends BaseLevel {
         rightBorder.setFill(Color.web("#1a2639"));
         backgroundLayer.getChildren().addAll(leftBorder, rightBorder);
 
-        // Make character sprite visible in a fixed, predictable position
-        sprite.moveBack(); // Ensure character is at starting position
+        // Make character sprite visible in a fixed, predictable position; placed, not moved,
+        // since an animation may not be started while the scene is built
+        sprite.placeAt(world.getSprite().getXPos());
 
         // Add goal area with proper proportions and position
         goal = new Rectangle(120, 80);
@@ -193,7 +192,7 @@ public class VariablesLevel extends BaseLevel {
 
         // Add all elements to appropriate layers
         backgroundLayer.getChildren().addAll(goal, pathLine);
-        foregroundLayer.getChildren().addAll(goalLabel, startLabel, variableBox, hint);
+        decorationLayer.getChildren().addAll(goalLabel, startLabel, variableBox, hint);
 
         appendToOutput("DEBUG: Goal placed at X:" + goal.getX() + ", Y:" + goal.getY() +
                        " with width:" + goal.getWidth() + ", height:" + goal.getHeight());
@@ -204,86 +203,48 @@ public class VariablesLevel extends BaseLevel {
 
     @Override
     public void processCommand(String command) {
-        // Split the command into lines
-        String[] lines = command.split("\n");
-
-        appendToOutput("\n--- Running your code ---");
-
-        for (String line : lines) {
-            // Remove comments and trim whitespace
-            line = line.replaceAll("//.*", "").trim();
-
-            if (line.isEmpty()) {
-                continue;
-            }
-
-            // Check for variable assignment: variableName = value;
-            Pattern varPattern = Pattern.compile("(\\w+)\\s*=\\s*(\\d+);");
-            Matcher varMatcher = varPattern.matcher(line);
-
-            if (varMatcher.find()) {
-                String varName = varMatcher.group(1);
-                int varValue = Integer.parseInt(varMatcher.group(2));
-                variables.put(varName, varValue);
-                appendToOutput("Variable created: " + varName + " = " + varValue);
-            }
-            // Check for setSpeed command
-            else if (line.matches("setSpeed\\(\\w+\\);")) {
-                Pattern paramPattern = Pattern.compile("setSpeed\\((\\w+)\\);");
-                Matcher paramMatcher = paramPattern.matcher(line);
-
-                if (paramMatcher.find()) {
-                    String varName = paramMatcher.group(1);
-                    if (variables.containsKey(varName)) {
-                        int speed = (int) variables.get(varName);
-                        sprite.setSpeed(speed);
-                        appendToOutput("Set speed to " + speed + " using variable " + varName);
-                        usedVariable = true;
-                        updateVariableDisplay();
-
-                        // Debug output
-                        appendToOutput("DEBUG: Speed set to " + speed);
-                    } else {
-                        appendToOutput("Error: Variable '" + varName + "' not defined");
-                    }
-                }
-            }
-            // Check for movement commands
-            else if (line.matches("moveRight\\(\\);.*")) {
-                appendToOutput("Executing: moveRight()");
-                sprite.moveRight();
-
-                // Debug position
-                appendToOutput("DEBUG: Sprite position after moveRight: X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
-            } else if (line.matches("moveLeft\\(\\);.*")) {
-                appendToOutput("Executing: moveLeft()");
-                sprite.moveLeft();
-
-                // Debug position
-                appendToOutput("DEBUG: Sprite position after moveLeft: X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
-            } else {
-                appendToOutput("Unrecognized command: " + line);
-            }
-        }
+        runProgram(command);
+    }
 
+    @Override
+    protected void onRunFinished() {
         // Debug collision check
         boolean inGoalX = sprite.getXPos() >= goal.getX() && sprite.getXPos() <= goal.getX() + goal.getWidth();
         boolean inGoalY = sprite.getYPos() >= goal.getY() && sprite.getYPos() <= goal.getY() + goal.getHeight();
         appendToOutput("DEBUG: In goal area? X:" + inGoalX + ", Y:" + inGoalY +
-                      " (Used variable: " + usedVariable + ")");
+                      " (Used variable: " + world.hasUsedVariable() + ")");
+    }
+
+    @Override
+    protected void onMoved(String command) {
+        super.onMoved(command);
+
+        // Debug position
+        appendToOutput("DEBUG: Sprite position after " + command + ": X:" + sprite.getXPos() + ", Y:" + sprite.getYPos());
+    }
+
+    @Override
+    protected void refreshFromWorld() {
+        updateVariableDisplay(sprite.getSpeed());
+    }
+
+    @Override
+    protected void onSpeedChanged(int speed) {
+        // The model may already be further on; show the speed this event set
+        updateVariableDisplay(speed);
 
-        // Check if the level is completed
-        checkLevelCompletion();
+        // Debug output
+        appendToOutput("DEBUG: Speed set to " + speed);
     }
 
-    private void updateVariableDisplay() {
+    private void updateVariableDisplay(int speed) {
         if (speedDisplay != null) {
-            speedDisplay.setText("Speed: " + sprite.getSpeed());
+            speedDisplay.setText("Speed: " + speed);
 
             // Change color based on speed for visual feedback
-            if (sprite.getSpeed() > 10) {
+            if (speed > 10) {
                 speedDisplay.setTextFill(Color.web("#2ecc71")); // Green for fast
-            } else if (sprite.getSpeed() < 5) {
+            } else if (speed < 5) {
                 speedDisplay.setTextFill(Color.web("#e74c3c")); // Red for slow
             } else {
                 speedDisplay.setTextFill(Color.WHITE); // Default
@@ -291,22 +252,9 @@ public class VariablesLevel extends BaseLevel {
         }
     }
 
-    private void checkLevelCompletion() {
-        // Check if the sprite is in the goal area and used a variable
-        if (sprite.getXPos() >= goal.getX() &&
-            sprite.getXPos() <= goal.getX() + goal.getWidth() &&
-            sprite.getYPos() >= goal.getY() &&
-            sprite.getYPos() <= goal.getY() + goal.getHeight() &&
-            usedVariable) {
-            completeLevel();
-        }
-    }
-
     @Override
     protected void onReset() {
-        // Clear variables
-        variables.clear();
-        usedVariable = false;
+        // Variables and flags live in the fresh world created by resetLevel()
 
         // Reset speed display
         if (speedDisplay != null) {